@@ -0,0 +1,84 @@
+package demos;
+
+import tools.*;
+import java.awt.Point;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+/** Times CooperativePathFinder planning many agents at once on the sample grid, with and without limits on the work it may do,
+ *  and checks that no two agents are ever planned onto the same spot at the same time.
+ *  Usage: CooperativeBenchmark [agents] [runs] [budget in ms], where the budget defaults to the 10ms between demo frames. */
+public class CooperativeBenchmark {
+
+	private final static int WINDOW = 16;
+
+	public static void main(String[] args) throws IOException {
+		int agents = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+		double budgetMs = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+		Grid grid = new Grid(CooperativeBenchmark.class.getResource("SampleGrid.txt"), 30, 30);
+		System.out.println("SampleGrid.txt (30x30), " + agents + " agents, window of " + WINDOW);
+
+		run("no expansion limit", new CooperativePathFinder(grid, WINDOW, AgentOrdering.FARTHEST_FIRST, Integer.MAX_VALUE), grid, agents, runs, 0);
+		run("default limit", new CooperativePathFinder(grid), grid, agents, runs, 0);
+		run("default limit, " + budgetMs + "ms budget", new CooperativePathFinder(grid), grid, agents, runs, (long) (budgetMs * 1000000));
+	}
+
+	private static void run(String name, CooperativePathFinder finder, Grid grid, int agents, int runs, long budgetNanos) {
+		Random random = new Random(7);
+		for (int i = 0; i < 20; ++i) //warm up
+			finder.findPaths(randomPoints(grid, agents, random), randomPoints(grid, agents, random), budgetNanos);
+
+		double[] times = new double[runs];
+		long overBudget = 0, conflicts = 0, collisions = 0, distanceLeft = 0;
+		for (int run = 0; run < runs; ++run) {
+			Point[] starts = randomPoints(grid, agents, random), goals = randomPoints(grid, agents, random);
+			Path[] paths = finder.findPaths(starts, goals, budgetNanos);
+			times[run] = finder.getLastTimeTaken();
+			overBudget += finder.getLastOverBudgetCount();
+			conflicts += finder.getLastConflictCount();
+			collisions += countCollisions(paths);
+			for (int a = 0; a < agents; ++a)
+				distanceLeft += Math.max(Math.abs(paths[a].getEnd().x - goals[a].x), Math.abs(paths[a].getEnd().y - goals[a].y));
+		}
+
+		Arrays.sort(times);
+		double total = 0;
+		for (double time : times)
+			total += time;
+		System.out.println(name);
+		System.out.printf("  planning: mean %7.3f ms  p99 %7.3f ms  max %7.3f ms%n", total / runs,
+				times[Math.max(0, (int) Math.ceil(0.99 * runs) - 1)], times[runs - 1]);
+		System.out.printf("  agents over budget: %.1f per run, distance left to goal: %.2f blocks per agent%n",
+				overBudget / (double) runs, distanceLeft / (double) (runs * agents));
+		System.out.printf("  conflicts reported: %d, collisions found: %d%n", conflicts, collisions);
+	}
+
+	//agents stay at the end of their path once they reach it, so every path is checked up to the end of the window
+	private static int countCollisions(Path[] paths) {
+		int collisions = 0;
+		for (int t = 0; t <= WINDOW; ++t) {
+			HashSet<Point> taken = new HashSet<Point>();
+			for (Path path : paths) {
+				int step = Math.min(t, path.getSteps().size() - 1);
+				if (!taken.add(path.getSteps().get(step)))
+					++collisions;
+			}
+		}
+		return collisions;
+	}
+
+	//different walkable spots, so that no two agents start or finish on the same spot
+	private static Point[] randomPoints(Grid grid, int count, Random random) {
+		HashSet<Point> used = new HashSet<Point>();
+		Point[] points = new Point[count];
+		for (int i = 0; i < count; ++i) {
+			do
+				points[i] = new Point(random.nextInt(grid.getXBlocks()), random.nextInt(grid.getYBlocks()));
+			while (!grid.isWalkable(points[i].x, points[i].y) || !used.add(points[i]));
+		}
+		return points;
+	}
+}
@@ -0,0 +1,40 @@
+package demos;
+
+import tools.*;
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.Random;
+
+/** Times DeltaSteppingPathFinder on a large random grid with 1 up to every available core, checking each result against the sequential WavefrontPathFinder.
+ *  Usage: DeltaSteppingBenchmark [size] [runs], for a size by size grid. A 4096 by 4096 grid needs a heap of about 2GB. */
+public class DeltaSteppingBenchmark {
+
+	public static void main(String[] args) {
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 1024;
+		int runs = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+		Grid grid = Grid.randomGrid(size, size, new Random(42));
+		Point start = new Point(size / 2, size / 2);
+
+		System.out.println("Grid: " + size + "x" + size);
+		int[][] expected = new WavefrontPathFinder(grid).findDistsFrom(start);
+
+		double oneCore = 0;
+		int cores = Runtime.getRuntime().availableProcessors();
+		for (int threads = 1; threads <= cores; threads = threads == cores ? cores + 1 : Math.min(threads * 2, cores)) {
+			DeltaSteppingPathFinder finder = new DeltaSteppingPathFinder(grid, threads, 0);
+			boolean matches = Arrays.deepEquals(expected, finder.findDistsFrom(start)); //also warms up
+			double total = 0;
+			for (int i = 0; i < runs; ++i) {
+				finder.findDistsFrom(start);
+				total += finder.getLastTimeTaken();
+			}
+			finder.shutdown();
+
+			double average = total / runs;
+			if (threads == 1)
+				oneCore = average;
+			System.out.printf("  %3d threads: %10.1f ms  speedup %5.2fx  %s%n", threads, average, oneCore / average,
+					matches ? "matches" : "DIFFERS FROM SEQUENTIAL");
+		}
+	}
+}
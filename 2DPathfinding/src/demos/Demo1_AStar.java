@@ -22,6 +22,7 @@ import java.awt.geom.Rectangle2D.Double;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
@@ -35,8 +36,10 @@ public class Demo1_AStar extends JPanel implements MouseListener, KeyListener {
 	Grid grid; 
 	int xBlocks, yBlocks;
 	Rectangle2D.Double gridBox = new Rectangle2D.Double(0,0,600,600);
-	AStarPathFinder pfer; 
+	PathScheduler scheduler; //finds paths a slice at a time so that a long search never stalls the demo loop
+	PathRequest pendingPath;
 	Path currentPath;
+	double lastTimeTaken = 0;
 	
 	public Demo1_AStar() {
 		addMouseListener(this);
@@ -50,8 +53,8 @@ public class Demo1_AStar extends JPanel implements MouseListener, KeyListener {
 		
 		xBlocks = grid.getXBlocks();
 		yBlocks = grid.getYBlocks();
-		pfer = new AStarPathFinder(grid);
-		currentPath = pfer.findPath(new Point(0,0), new Point(25,10));
+		scheduler = new PathScheduler(grid);
+		requestPath(new Point(0,0), new Point(25,10));
 	
 		Thread t = new Thread(new Runnable() {
 			public void run() {
@@ -65,6 +68,8 @@ public class Demo1_AStar extends JPanel implements MouseListener, KeyListener {
 	public void demoLoop(){
 		while(isRunning){
 			updateInput();
+			scheduler.update(5000000);
+			updatePath();
 			updateGrid();
 			repaint();
 			
@@ -81,18 +86,38 @@ public class Demo1_AStar extends JPanel implements MouseListener, KeyListener {
 		if(rmouseDown || lmouseDown){
 			Point mAt = MouseInfo.getPointerInfo().getLocation();
 			mAt.translate(-this.getLocationOnScreen().x,-this.getLocationOnScreen().y);
-			if(currentPath == null){
-				currentPath = pfer.findPath(new Point(0,0), mouseToGridPoint(mAt));
+			if(currentPath == null && gridBox.contains(mAt)){
+				requestPath(new Point(0,0), mouseToGridPoint(mAt));
 				rmouseDown = false; //this covers the case where the previous path did not exist
 			}
 			else if(gridBox.contains(mAt) && lmouseDown )
-				currentPath = pfer.findPath(currentPath.getEnd(), mouseToGridPoint(mAt) );
+				requestPath(currentPath.getEnd(), mouseToGridPoint(mAt) );
 			else if(gridBox.contains(mAt) && rmouseDown)
-				currentPath = pfer.findPath(mouseToGridPoint(mAt), currentPath.getStart());
+				requestPath(mouseToGridPoint(mAt), currentPath.getStart());
 			
 		}
 	}
 	
+	private void requestPath(Point start, Point end){
+		pendingPath = scheduler.request(0, start, end, 0, 0); //the demo only has one agent, so each request replaces the last
+	}
+	
+	private void updatePath(){
+		if(pendingPath == null || !pendingPath.isDone())
+			return;
+		if(!pendingPath.isCancelled()){
+			try {
+				currentPath = pendingPath.get();
+				lastTimeTaken = pendingPath.getTimeTaken();
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			} catch (ExecutionException e) {
+				e.printStackTrace();
+			}
+		}
+		pendingPath = null;
+	}
+	
 	private Point mouseToGridPoint(Point mAt){
 		return new Point((int)(1.0*mAt.x*xBlocks/gridBox.width),(int)(1.0*mAt.y*yBlocks/gridBox.height));
 	}
@@ -183,7 +208,7 @@ public class Demo1_AStar extends JPanel implements MouseListener, KeyListener {
 				     + "the points as well \n"
 				     + "as the time taken to find it.", 620, 110);
 		
-		drawString(g2, "Time taken: "+pfer.getLastTimeTaken()+"ms", 620,500);
+		drawString(g2, "Time taken: "+lastTimeTaken+"ms", 620,500);
 	}
 	
 	private void drawString(Graphics g, String text, int x, int y) {
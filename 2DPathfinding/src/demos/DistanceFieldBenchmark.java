@@ -0,0 +1,47 @@
+package demos;
+
+import tools.*;
+import java.awt.Point;
+import java.io.IOException;
+import java.util.Arrays;
+
+/** Compares the distance fields found by SwarmPathFinder and WavefrontPathFinder, checking that they are identical and timing both. */
+public class DistanceFieldBenchmark {
+
+	public static void main(String[] args) throws IOException {
+		Grid sample = new Grid(DistanceFieldBenchmark.class.getResource("SampleGrid.txt"), 30, 30);
+		compare("SampleGrid.txt (30x30)", sample, 200);
+		compare("Open grid (150x150)", new Grid(150, 150), 5);
+	}
+
+	private static void compare(String name, Grid grid, int runs) {
+		SwarmPathFinder swarm = new SwarmPathFinder(grid);
+		WavefrontPathFinder wavefront = new WavefrontPathFinder(grid);
+
+		//every spot on the grid as a start point must give identical fields
+		int mismatches = 0;
+		int step = Math.max(1, grid.getTotalBlocks() / 200);
+		for (int i = 0; i < grid.getTotalBlocks(); i += step) {
+			Point start = new Point(i % grid.getXBlocks(), i / grid.getXBlocks());
+			if (!Arrays.deepEquals(swarm.findDistsFrom(start), wavefront.findDistsFrom(start)))
+				++mismatches;
+		}
+
+		Point start = new Point(grid.getXBlocks() / 2, grid.getYBlocks() / 2);
+		long swarmTime = System.nanoTime();
+		for (int i = 0; i < runs; ++i)
+			swarm.findDistsFrom(start);
+		swarmTime = System.nanoTime() - swarmTime;
+
+		long wavefrontTime = System.nanoTime();
+		for (int i = 0; i < runs; ++i)
+			wavefront.findDistsFrom(start);
+		wavefrontTime = System.nanoTime() - wavefrontTime;
+
+		System.out.println(name);
+		System.out.println("  fields differing from swarm: " + mismatches);
+		System.out.printf("  swarm:     %10.3f ms per field%n", swarmTime / 1000000.0 / runs);
+		System.out.printf("  wavefront: %10.3f ms per field (%d sweeps)%n", wavefrontTime / 1000000.0 / runs, wavefront.getLastSweepCount());
+		System.out.printf("  speedup:   %10.1fx%n", (double) swarmTime / wavefrontTime);
+	}
+}
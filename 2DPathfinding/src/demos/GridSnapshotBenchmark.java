@@ -0,0 +1,94 @@
+package demos;
+
+import tools.*;
+import java.awt.Point;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Measures how many A* searches reader threads get through on a VersionedGrid while a writer keeps editing it at various rates,
+ *  then how long publishing a single edit takes on grids of growing size.
+ *  Usage: GridSnapshotBenchmark [size] [readers] [seconds per rate] */
+public class GridSnapshotBenchmark {
+
+	private final static int[] EDITS_PER_SECOND = { 0, 100, 1000, 10000 };
+	private final static int[] EDIT_GRID_SIZES = { 256, 1024, 2048 };
+
+	public static void main(String[] args) throws InterruptedException {
+		int size = args.length > 0 ? Integer.parseInt(args[0]) : 64;
+		int readers = args.length > 1 ? Integer.parseInt(args[1]) : Math.max(2, Runtime.getRuntime().availableProcessors());
+		int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+		System.out.println("Grid: " + size + "x" + size + ", " + readers + " reader threads");
+
+		for (int rate : EDITS_PER_SECOND) {
+			final VersionedGrid grid = new VersionedGrid(new Grid(size, size));
+			final AtomicLong searches = new AtomicLong();
+			final long stopAt = System.nanoTime() + seconds * 1000000000L;
+
+			Thread[] threads = new Thread[readers];
+			for (int i = 0; i < readers; ++i) {
+				final long seed = i;
+				threads[i] = new Thread(new Runnable() {
+					public void run() {
+						read(grid, searches, stopAt, seed);
+					}
+				});
+				threads[i].start();
+			}
+			long edits = write(grid, rate, stopAt);
+			for (Thread thread : threads)
+				thread.join();
+
+			System.out.printf("  %6d edits/s requested: %8.1f searches/s, %6d versions published%n",
+					rate, searches.get() / (double) seconds, edits);
+		}
+
+		//only the edited chunk of costs and column of blocks are copied, so the cost of an edit grows with the grid's width, not its area
+		for (int editSize : EDIT_GRID_SIZES) {
+			VersionedGrid grid = new VersionedGrid(new Grid(editSize, editSize));
+			Random random = new Random(1);
+			int edits = 2000;
+			long start = System.nanoTime();
+			for (int i = 0; i < edits; ++i)
+				grid.setBlock(random.nextInt(editSize), random.nextInt(editSize), random.nextInt(3));
+			System.out.printf("  %4dx%-4d grid: %8.1f us per single block edit%n", editSize, editSize, (System.nanoTime() - start) / 1000.0 / edits);
+		}
+	}
+
+	//finds paths on whichever version of the grid is current when each search starts
+	private static void read(VersionedGrid grid, AtomicLong searches, long stopAt, long seed) {
+		Random random = new Random(seed);
+		Grid snapshot = null;
+		AStarPathFinder finder = null;
+		while (System.nanoTime() < stopAt) {
+			Grid latest = grid.current();
+			if (latest != snapshot) {
+				snapshot = latest;
+				finder = new AStarPathFinder(snapshot);
+			}
+			int size = snapshot.getXBlocks();
+			finder.findPath(new Point(random.nextInt(size), random.nextInt(size)), new Point(random.nextInt(size), random.nextInt(size)));
+			searches.incrementAndGet();
+		}
+	}
+
+	//turns random blocks into open ground, walls or rough ground at the given rate, one version per edit
+	private static long write(VersionedGrid grid, int rate, long stopAt) throws InterruptedException {
+		Random random = new Random(-1);
+		int size = grid.current().getXBlocks();
+		long edits = 0;
+		long start = System.nanoTime();
+		while (System.nanoTime() < stopAt) {
+			if (rate == 0) {
+				Thread.sleep(10);
+				continue;
+			}
+			long due = start + edits * 1000000000L / rate;
+			long wait = due - System.nanoTime();
+			if (wait > 0)
+				Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+			grid.setBlock(random.nextInt(size), random.nextInt(size), random.nextInt(3));
+			++edits;
+		}
+		return edits;
+	}
+}
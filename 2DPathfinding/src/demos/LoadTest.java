@@ -0,0 +1,524 @@
+package demos;
+
+import tools.*;
+import java.awt.Point;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/** Runs path queries against one of the pathfinders without any window, either replaying a recorded log of queries or making up
+ *  queries arriving at a steady average rate. It reports throughput, latency percentiles and garbage collection pauses, and
+ *  checks the cost of every path found against Dijkstra's algorithm so that a faster pathfinder cannot quietly give worse paths.
+ *  Each query has a time it is due. A thread answering queries takes the next one once it is free and the query is due, so
+ *  queries are never sent faster than the threads can answer them. This is not an open-loop load, since a slow query holds back
+ *  the ones behind it. The scheduler engine is the exception: its queries are all sent when due and answered on its own thread.
+ *  Either way a query's latency is measured from when it was due, so it includes any time spent waiting behind slower ones.
+ *
+ *  Usage: LoadTest replay [log] [options], or LoadTest synthetic [options]
+ *  Each line of a log is one query, "timeMs gridFile xBlocks yBlocks startX startY goalX goalY", with the grid file relative to the log.
+ *  Options:
+ *    --engine [name]        astar (the default), astar-none, graph, ch, swarm, wavefront, delta or scheduler
+ *    --threads [n]          threads answering queries, 1 by default. The scheduler always uses its own single thread
+ *    --speed [factor]       replays the log this many times faster, or all at once if 0, to find the most it can take
+ *    --grid [file] [x] [y]  the grid for synthetic queries, the sample grid by default
+ *    --random [size]        a random size by size grid for synthetic queries instead
+ *    --qps [n]              synthetic queries per second, 200 by default
+ *    --count [n]            how many synthetic queries to make, 2000 by default
+ *    --seed [n]             the seed for random grids and queries, 42 by default
+ *    --record [log]         also saves the synthetic queries, and their grid next to them, as a log to replay later
+ *    --warmup [n]           how many queries to run untimed first so that the searches get compiled, 200 by default
+ *    --timeout [ms]         the deadline given to scheduler requests, none by default
+ *    --no-verify            skips checking the path costs */
+public class LoadTest {
+
+	private final static int NO_PATH = -1;
+	private final static int EXPIRED = -2;
+	private final static int INVALID_PATH = -3;
+
+	private String engineName = "astar";
+	private int threads = 1;
+	private double speed = 1;
+	private int warmup = 200;
+	private long timeout = 0;
+	private boolean verify = true;
+
+	private List<Grid> grids = new ArrayList<Grid>();
+	private List<String> gridNames = new ArrayList<String>();
+	private HashMap<String, Integer> gridIndex = new HashMap<String, Integer>();
+	private ContractionHierarchy[] hierarchies;
+
+	//the queries, in order of arrival
+	private int count;
+	private long[] arrival; //in nanoseconds from the first query
+	private int[] queryGrid;
+	private Point[] starts, goals;
+
+	//the results of each query
+	private int[] cost;
+	private long[] latency; //from when the query was due until its path was found, in nanoseconds
+	private long[] searchTime; //time spent actually searching, in nanoseconds
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length == 0 || !(args[0].equals("replay") || args[0].equals("synthetic"))) {
+			System.out.println("Usage: LoadTest replay [log] [options], or LoadTest synthetic [options]");
+			return;
+		}
+		LoadTest test = new LoadTest();
+		boolean isReplay = args[0].equals("replay");
+		String log = null, record = null, gridFile = null;
+		int gridX = 0, gridY = 0, randomSize = 0, queries = 2000;
+		double qps = 200;
+		long seed = 42;
+
+		int at = 1;
+		if (isReplay)
+			log = args[at++];
+		while (at < args.length) {
+			String option = args[at++];
+			switch (option) {
+			case "--engine": test.engineName = args[at++]; break;
+			case "--threads": test.threads = Integer.parseInt(args[at++]); break;
+			case "--speed": test.speed = Double.parseDouble(args[at++]); break;
+			case "--grid":
+				gridFile = args[at++];
+				gridX = Integer.parseInt(args[at++]);
+				gridY = Integer.parseInt(args[at++]);
+				break;
+			case "--random": randomSize = Integer.parseInt(args[at++]); break;
+			case "--qps": qps = Double.parseDouble(args[at++]); break;
+			case "--count": queries = Integer.parseInt(args[at++]); break;
+			case "--seed": seed = Long.parseLong(args[at++]); break;
+			case "--record": record = args[at++]; break;
+			case "--warmup": test.warmup = Integer.parseInt(args[at++]); break;
+			case "--timeout": test.timeout = Long.parseLong(args[at++]); break;
+			case "--no-verify": test.verify = false; break;
+			default:
+				System.out.println("Unknown option " + option);
+				return;
+			}
+		}
+
+		if (isReplay) {
+			test.readLog(new File(log));
+		}
+		else {
+			Random random = new Random(seed);
+			Grid grid;
+			if (randomSize > 0)
+				grid = Grid.randomGrid(randomSize, randomSize, random);
+			else if (gridFile != null)
+				grid = new Grid(gridFile, gridX, gridY);
+			else
+				grid = new Grid(LoadTest.class.getResource("SampleGrid.txt"), 30, 30);
+			test.generate(grid, queries, qps, random);
+			if (record != null)
+				test.writeLog(new File(record));
+		}
+		test.run();
+	}
+
+	//reads queries from a log, loading each grid it names once
+	private void readLog(File log) throws IOException {
+		List<Integer> gridsRead = new ArrayList<Integer>();
+		List<Point> startsRead = new ArrayList<Point>(), goalsRead = new ArrayList<Point>();
+		List<Double> times = new ArrayList<Double>();
+		try (BufferedReader in = new BufferedReader(new FileReader(log))) {
+			String line;
+			while ((line = in.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#"))
+					continue;
+				String[] field = line.split("\\s+");
+				if (field.length != 8)
+					throw new IOException("Expected 8 fields but found " + field.length + ": " + line);
+				String key = field[1] + " " + field[2] + " " + field[3];
+				Integer index = gridIndex.get(key);
+				if (index == null) {
+					File file = new File(field[1]);
+					if (!file.isAbsolute())
+						file = new File(log.getAbsoluteFile().getParentFile(), field[1]);
+					index = addGrid(new Grid(file.getPath(), Integer.parseInt(field[2]), Integer.parseInt(field[3])), field[1]);
+					gridIndex.put(key, index);
+				}
+				times.add(Double.parseDouble(field[0]));
+				gridsRead.add(index);
+				startsRead.add(new Point(Integer.parseInt(field[4]), Integer.parseInt(field[5])));
+				goalsRead.add(new Point(Integer.parseInt(field[6]), Integer.parseInt(field[7])));
+			}
+		}
+
+		allocate(times.size());
+		for (int i = 0; i < count; ++i) {
+			double fromFirst = (times.get(i) - times.get(0)) * 1000000;
+			arrival[i] = speed == 0 ? 0 : (long) (fromFirst / speed);
+			queryGrid[i] = gridsRead.get(i);
+			starts[i] = startsRead.get(i);
+			goals[i] = goalsRead.get(i);
+		}
+		System.out.println("Replaying " + count + " queries on " + grids.size() + " grid(s) from " + log);
+	}
+
+	//makes up queries between random walkable blocks, with exponentially distributed gaps between them as with independent users
+	private void generate(Grid grid, int queries, double qps, Random random) {
+		addGrid(grid, "grid.txt");
+		allocate(queries);
+		double time = 0;
+		for (int i = 0; i < count; ++i) {
+			arrival[i] = (long) time;
+			starts[i] = randomWalkable(grid, random);
+			goals[i] = randomWalkable(grid, random);
+			time += -Math.log(1 - random.nextDouble()) / qps * 1000000000;
+		}
+		System.out.printf(Locale.ROOT, "Generated %d queries at %.1f per second on a %dx%d grid%n", count, qps, grid.getXBlocks(), grid.getYBlocks());
+	}
+
+	//saves the queries in the log format, with the grid saved next to the log
+	private void writeLog(File log) throws IOException {
+		File gridFile = new File(log.getAbsoluteFile().getParentFile(), log.getName() + ".grid.txt");
+		Grid grid = grids.get(0);
+		try (PrintWriter out = new PrintWriter(gridFile)) {
+			for (int y = 0; y < grid.getYBlocks(); ++y) {
+				StringBuilder row = new StringBuilder(grid.getXBlocks());
+				for (int x = 0; x < grid.getXBlocks(); ++x)
+					row.append(grid.whatBlock(x, y));
+				out.println(row);
+			}
+		}
+		try (PrintWriter out = new PrintWriter(log)) {
+			out.println("# timeMs gridFile xBlocks yBlocks startX startY goalX goalY");
+			for (int i = 0; i < count; ++i)
+				out.printf(Locale.ROOT, "%.3f %s %d %d %d %d %d %d%n", arrival[i] / 1000000.0, gridFile.getName(),
+						grid.getXBlocks(), grid.getYBlocks(), starts[i].x, starts[i].y, goals[i].x, goals[i].y);
+		}
+		System.out.println("Recorded the queries to " + log + " and the grid to " + gridFile);
+	}
+
+	private int addGrid(Grid grid, String name) {
+		grids.add(grid);
+		gridNames.add(name);
+		return grids.size() - 1;
+	}
+
+	private void allocate(int queries) {
+		count = queries;
+		arrival = new long[count];
+		queryGrid = new int[count];
+		starts = new Point[count];
+		goals = new Point[count];
+		cost = new int[count];
+		latency = new long[count];
+		searchTime = new long[count];
+	}
+
+	private void run() throws InterruptedException {
+		if (count == 0) {
+			System.out.println("There are no queries to run");
+			return;
+		}
+		if (engineName.equals("ch")) {
+			hierarchies = new ContractionHierarchy[grids.size()];
+			long buildStart = System.nanoTime();
+			for (int g = 0; g < grids.size(); ++g)
+				hierarchies[g] = ContractionHierarchy.build(grids.get(g));
+			System.out.printf(Locale.ROOT, "Preprocessing took %.1f ms%n", (System.nanoTime() - buildStart) / 1000000.0);
+		}
+
+		List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+		long[] gcCounts = new long[collectors.size()], gcTimes = new long[collectors.size()];
+		long runStart, runEnd;
+		if (engineName.equals("scheduler")) {
+			PathScheduler[] schedulers = new PathScheduler[grids.size()];
+			for (int g = 0; g < grids.size(); ++g) {
+				schedulers[g] = new PathScheduler(grids.get(g));
+				schedulers[g].start();
+			}
+			warmUpScheduler(schedulers);
+			readCollectors(collectors, gcCounts, gcTimes);
+			runStart = System.nanoTime();
+			runEnd = runScheduler(schedulers, runStart);
+			for (PathScheduler scheduler : schedulers)
+				scheduler.stop();
+		}
+		else {
+			Engine[][] engines = new Engine[threads][grids.size()];
+			for (int t = 0; t < threads; ++t)
+				for (int g = 0; g < grids.size(); ++g)
+					engines[t][g] = newEngine(g);
+			for (int i = 0; i < warmup; ++i)
+				engines[0][queryGrid[i % count]].findCost(starts[i % count], goals[i % count]);
+			readCollectors(collectors, gcCounts, gcTimes);
+			runStart = System.nanoTime();
+			runEnd = runEngines(engines, runStart);
+			for (Engine[] threadEngines : engines)
+				for (Engine engine : threadEngines)
+					engine.close();
+		}
+		long[] gcCountsAfter = new long[collectors.size()], gcTimesAfter = new long[collectors.size()];
+		readCollectors(collectors, gcCountsAfter, gcTimesAfter);
+
+		report(runEnd - runStart);
+		StringBuilder gc = new StringBuilder();
+		long gcTotal = 0;
+		for (int c = 0; c < collectors.size(); ++c) {
+			long collections = gcCountsAfter[c] - gcCounts[c], time = gcTimesAfter[c] - gcTimes[c];
+			gcTotal += time;
+			gc.append(String.format(Locale.ROOT, "%n    %-24s %6d collections %8d ms", collectors.get(c).getName(), collections, time));
+		}
+		System.out.printf(Locale.ROOT, "  garbage collection: %d ms, %.2f%% of the run%s%n", gcTotal, gcTotal * 100.0 / Math.max(1, (runEnd - runStart) / 1000000), gc);
+		if (verify)
+			verify();
+	}
+
+	//each thread takes the next query, waits until it is due and answers it, so slow queries delay the ones behind them
+	private long runEngines(final Engine[][] engines, final long runStart) throws InterruptedException {
+		final AtomicInteger next = new AtomicInteger();
+		final long[] lastFinish = new long[threads];
+		Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; ++t) {
+			final int thread = t;
+			workers[t] = new Thread(new Runnable() {
+				public void run() {
+					int i;
+					while ((i = next.getAndIncrement()) < count) {
+						long due = runStart + arrival[i];
+						waitUntil(due);
+						long searchStart = System.nanoTime();
+						cost[i] = engines[thread][queryGrid[i]].findCost(starts[i], goals[i]);
+						long finish = System.nanoTime();
+						searchTime[i] = finish - searchStart;
+						latency[i] = finish - due;
+						lastFinish[thread] = finish;
+					}
+				}
+			}, "LoadTest-" + t);
+			workers[t].start();
+		}
+		long runEnd = runStart;
+		for (int t = 0; t < threads; ++t) {
+			workers[t].join();
+			runEnd = Math.max(runEnd, lastFinish[t]);
+		}
+		return runEnd;
+	}
+
+	//sends every query to the scheduler when it is due, then collects the results once they are all sent
+	private long runScheduler(PathScheduler[] schedulers, long runStart) throws InterruptedException {
+		PathRequest[] requests = new PathRequest[count];
+		for (int i = 0; i < count; ++i) {
+			waitUntil(runStart + arrival[i]);
+			requests[i] = schedulers[queryGrid[i]].request(PathScheduler.NO_AGENT, starts[i], goals[i], 0, timeout);
+		}
+		long runEnd = runStart;
+		for (int i = 0; i < count; ++i) {
+			try {
+				cost[i] = pathCost(grids.get(queryGrid[i]), requests[i].get(), starts[i], goals[i]);
+			} catch (CancellationException e) {
+				cost[i] = EXPIRED;
+			} catch (ExecutionException e) {
+				cost[i] = INVALID_PATH; //the search threw, which is reported as a mismatch like any other wrong answer
+			}
+			latency[i] = requests[i].getFinishTime() - (runStart + arrival[i]);
+			searchTime[i] = (long) (requests[i].getTimeTaken() * 1000000);
+			runEnd = Math.max(runEnd, requests[i].getFinishTime());
+		}
+		return runEnd;
+	}
+
+	private void warmUpScheduler(PathScheduler[] schedulers) throws InterruptedException {
+		for (int i = 0; i < warmup; ++i) {
+			PathRequest request = schedulers[queryGrid[i % count]].request(starts[i % count], goals[i % count]);
+			try {
+				request.get();
+			} catch (ExecutionException e) {
+				//a search which throws is reported by the run itself
+			}
+		}
+	}
+
+	private void report(long runNanos) {
+		int noPath = 0, expired = 0;
+		for (int i = 0; i < count; ++i) {
+			if (cost[i] == NO_PATH)
+				++noPath;
+			else if (cost[i] == EXPIRED)
+				++expired;
+		}
+		double seconds = runNanos / 1000000000.0;
+		String offered = arrival[count - 1] > 0 ? String.format(Locale.ROOT, "%.1f queries/s", (count - 1) / (arrival[count - 1] / 1000000000.0)) : "all at once";
+		System.out.printf(Locale.ROOT, "Engine %s, %d thread(s), %d queries arriving %s%n", engineName,
+				engineName.equals("scheduler") ? 1 : threads, count, offered);
+		System.out.printf(Locale.ROOT, "  throughput: %.1f queries/s over %.2f s%n", count / seconds, seconds);
+		System.out.println("  latency from arrival (ms): " + percentiles(latency));
+		System.out.println("  time searching (ms):       " + percentiles(searchTime));
+		System.out.println("  no path: " + noPath + ", expired: " + expired);
+	}
+
+	private static String percentiles(long[] nanos) {
+		long[] sorted = nanos.clone();
+		Arrays.sort(sorted);
+		return String.format(Locale.ROOT, "p50 %.3f  p95 %.3f  p99 %.3f  max %.3f", percentile(sorted, 0.5), percentile(sorted, 0.95),
+				percentile(sorted, 0.99), sorted[sorted.length - 1] / 1000000.0);
+	}
+
+	//the nearest rank percentile, in milliseconds
+	private static double percentile(long[] sorted, double fraction) {
+		int rank = (int) Math.ceil(fraction * sorted.length);
+		return sorted[Math.max(0, rank - 1)] / 1000000.0;
+	}
+
+	//finds the true cost of every query with Dijkstra's algorithm once the timed run is over, so checking never slows it down
+	private void verify() {
+		GraphPathFinder[] references = new GraphPathFinder[grids.size()];
+		int checked = 0, mismatches = 0;
+		StringBuilder examples = new StringBuilder();
+		for (int i = 0; i < count; ++i) {
+			if (cost[i] == EXPIRED)
+				continue;
+			Grid grid = grids.get(queryGrid[i]);
+			if (references[queryGrid[i]] == null)
+				references[queryGrid[i]] = new GraphPathFinder(grid);
+			GraphPathFinder reference = references[queryGrid[i]];
+			reference.findPath(grid.getNodeID(starts[i]), grid.getNodeID(goals[i]));
+			int expected = reference.getLastPathCost();
+			++checked;
+			if (cost[i] != expected) {
+				if (++mismatches <= 5)
+					examples.append(String.format("%n    %s (%d,%d) to (%d,%d): cost %s, expected %d", gridNames.get(queryGrid[i]), starts[i].x, starts[i].y,
+							goals[i].x, goals[i].y, cost[i] == INVALID_PATH ? "of an invalid path" : String.valueOf(cost[i]), expected));
+			}
+		}
+		System.out.println("  costs checked against Dijkstra: " + checked + ", mismatches: " + mismatches + examples);
+	}
+
+	private static void readCollectors(List<GarbageCollectorMXBean> collectors, long[] counts, long[] times) {
+		for (int c = 0; c < collectors.size(); ++c) {
+			counts[c] = collectors.get(c).getCollectionCount();
+			times[c] = collectors.get(c).getCollectionTime();
+		}
+	}
+
+	private static void waitUntil(long due) {
+		long left;
+		while ((left = due - System.nanoTime()) > 0)
+			LockSupport.parkNanos(left);
+	}
+
+	/** One pathfinder answering queries on one grid. Each thread has its own, since the pathfinders keep their search state between queries. */
+	private static abstract class Engine {
+		/**
+		 *
+		 * @return The cost of the path found, NO_PATH if there is none, or INVALID_PATH if the path found is not a real path from start to goal.
+		 */
+		abstract int findCost(Point start, Point goal);
+
+		void close() {
+		}
+	}
+
+	private Engine newEngine(int gridNumber) {
+		final Grid grid = grids.get(gridNumber);
+		switch (engineName) {
+		case "astar":
+		case "astar-none":
+			final AStarPathFinder astar = engineName.equals("astar") ? new AStarPathFinder(grid)
+					: new AStarPathFinder(grid, AStarPathFinder.HEURISTIC_NONE);
+			return new Engine() {
+				int findCost(Point start, Point goal) {
+					return pathCost(grid, astar.findPath(start, goal), start, goal);
+				}
+			};
+		case "graph":
+			final GraphPathFinder graph = new GraphPathFinder(grid, grid.getDiagonalHeuristic());
+			return new Engine() {
+				int findCost(Point start, Point goal) {
+					graph.findPath(grid.getNodeID(start), grid.getNodeID(goal));
+					return graph.getLastPathCost();
+				}
+			};
+		case "ch":
+			final ContractionHierarchy hierarchy = hierarchies[gridNumber];
+			return new Engine() {
+				int findCost(Point start, Point goal) {
+					Path path;
+					synchronized (hierarchy) { //one hierarchy is shared by every thread, since each copy takes so long to build
+						path = hierarchy.findPath(grid, start, goal);
+					}
+					return pathCost(grid, path, start, goal);
+				}
+			};
+		case "swarm":
+			final SwarmPathFinder swarm = new SwarmPathFinder(grid);
+			return new Engine() {
+				int findCost(Point start, Point goal) {
+					return swarm.findDistsFrom(start)[goal.x][goal.y];
+				}
+			};
+		case "wavefront":
+			final WavefrontPathFinder wavefront = new WavefrontPathFinder(grid);
+			return new Engine() {
+				int findCost(Point start, Point goal) {
+					return wavefront.findDistsFrom(start)[goal.x][goal.y];
+				}
+			};
+		case "delta":
+			final DeltaSteppingPathFinder delta = new DeltaSteppingPathFinder(grid);
+			return new Engine() {
+				int findCost(Point start, Point goal) {
+					return delta.findDistsFrom(start)[goal.x][goal.y];
+				}
+
+				void close() {
+					delta.shutdown();
+				}
+			};
+		default:
+			throw new IllegalArgumentException("Unknown engine " + engineName);
+		}
+	}
+
+	//adds up the steps of a path, which may run from either end
+	private static int pathCost(Grid grid, Path path, Point start, Point goal) {
+		if (path == null)
+			return NO_PATH;
+		List<Point> steps = new ArrayList<Point>(path.getSteps());
+		if (!steps.get(0).equals(start)) {
+			for (int i = 0, j = steps.size() - 1; i < j; ++i, --j) {
+				Point swap = steps.get(i);
+				steps.set(i, steps.get(j));
+				steps.set(j, swap);
+			}
+		}
+		if (!steps.get(0).equals(start) || !steps.get(steps.size() - 1).equals(goal))
+			return INVALID_PATH;
+		int total = 0;
+		for (int i = 1; i < steps.size(); ++i) {
+			int step = grid.getStepCost(steps.get(i - 1), steps.get(i));
+			if (step == -1)
+				return INVALID_PATH;
+			total += step;
+		}
+		return total;
+	}
+
+	private static Point randomWalkable(Grid grid, Random random) {
+		while (true) {
+			Point at = new Point(random.nextInt(grid.getXBlocks()), random.nextInt(grid.getYBlocks()));
+			if (grid.isWalkable(at.x, at.y))
+				return at;
+		}
+	}
+}
@@ -9,15 +9,20 @@ public class AStarPathFinder {
 	public final static int HEURISTIC_NONE = 0;
 	public final static int HEURISTIC_MANHATTAN = 1;
 	public final static int HEURISTIC_DIAGONAL = 2;
+	private final static int SEARCHING = 0;
+	private final static int FOUND = 1;
+	private final static int NO_PATH = 2;
 	private Grid grid;
 	private PriorityQueue<Integer> open = new PriorityQueue<Integer>(100, new fscoreComparator());
 	private int[] fscore;
 	private int[] hscore;
-	private int[] costGrid;
 	private int[] parent;
 	private boolean[] visited;
 	private int xBlocks, yBlocks;
 	private int current;
+	private int startID, goal;
+	private int closest; //the visited block nearest the goal, where a partial path ends
+	private int searchState = NO_PATH;
 	private int heuristicType;
 	private double timeTaken = 0;//in ms
 
@@ -36,7 +41,6 @@ public class AStarPathFinder {
 	 */
 	public AStarPathFinder(Grid gridIn, int heuristicType){
 		this.grid = gridIn;
-		costGrid = grid.getCostMapID();
 		xBlocks = grid.getXBlocks();
 		yBlocks = grid.getYBlocks();
 		parent = new int[xBlocks * yBlocks];
@@ -54,37 +58,114 @@ public class AStarPathFinder {
 	 */
 	public Path findPath(Point start, Point end) {
 		long startTime = System.nanoTime();
+		beginSearch(start, end);
+		searchStep(Integer.MAX_VALUE);
+		Path path = getFoundPath();
+		if (path != null)
+			timeTaken = (System.nanoTime() - startTime)/1000000.0;
+		return path;
+	}
+
+	/** Starts finding the shortest path from start to end, without expanding any blocks yet. 
+	 *  Together with searchStep this lets a long search be spread out over several calls, for example one slice per game tick.
+	 * 
+	 * @param start The starting point, as a 2D coordinate on the grid.
+	 * @param end The destination point, as a 2D coordinate on the grid.
+	 */
+	public void beginSearch(Point start, Point end) {
 		parent = new int[xBlocks * yBlocks];
 		hscore = new int[xBlocks * yBlocks];
 		fscore = new int[xBlocks * yBlocks];
 		visited = new boolean[xBlocks * yBlocks];
 		open = new PriorityQueue<Integer>(100,new fscoreComparator());
 		
-		current = grid.pointToID(start);
-		int goal = grid.pointToID(end);
-		
-		if(grid.costID[current]==-1)
-			return null;
+		startID = grid.pointToID(start);
+		current = startID;
+		closest = startID;
+		goal = grid.pointToID(end);
+		searchState = grid.costID(current)==-1 ? NO_PATH : SEARCHING;
+	}
 
-		while (current != goal) {
+	/** Continues the search started by beginSearch.
+	 * 
+	 * @param maxExpansions The most blocks to expand before returning.
+	 * @return True once the search has finished, whether or not a path was found.
+	 */
+	public boolean searchStep(int maxExpansions) {
+		for (int i = 0; i < maxExpansions && searchState == SEARCHING; ++i) {
+			if (current == goal) {
+				searchState = FOUND;
+				break;
+			}
 			visited[current] = true;
+			if (goalDistance(current) < goalDistance(closest))
+				closest = current;
 			addAdjacentBlocks();
 			if (open.size() == 0)
-				return null; // we've checked all the blocks, there is no path
-			current = open.poll();
-
+				searchState = NO_PATH; // we've checked all the blocks, there is no path
+			else
+				current = open.poll();
 		}
+		if (searchState == SEARCHING && current == goal)
+			searchState = FOUND;
+		return searchState != SEARCHING;
+	}
 
-		Path path = new Path();
+	/** 
+	 * 
+	 * @return The path found by the most recent search, or null if it found no path or has not finished.
+	 */
+	public Path getFoundPath() {
+		if (searchState != FOUND)
+			return null;
 
-		while (current != grid.pointToID(start)) {
-			path.add(grid.idToPoint(current));
-			current = parent[current];
+		Path path = new Path();
+		int at = current;
+		while (at != startID) {
+			path.add(grid.idToPoint(at));
+			at = parent[at];
 		}
-		path.add(start);
+		path.add(grid.idToPoint(startID));
+		return path;
+	}
 
+	/** Finds the shortest path from start to end, as a view going from start to end. If the search needs more than maxExpansions,
+	 *  the best path found so far is returned instead, so an agent can start moving while searchStep and getPathView finish it.
+	 * 
+	 * @param start The starting point, as a 2D coordinate on the grid.
+	 * @param end The destination point, as a 2D coordinate on the grid.
+	 * @param maxExpansions The most blocks to expand before giving back a partial path.
+	 * @return The shortest path from start to end, a partial path towards end, or null if there is no path.
+	 */
+	public PathView findPathView(Point start, Point end, int maxExpansions) {
+		long startTime = System.nanoTime();
+		beginSearch(start, end);
+		searchStep(maxExpansions);
+		PathView view = getPathView();
 		timeTaken = (System.nanoTime() - startTime)/1000000.0;
-		return path;
+		return view;
+	}
+
+	/** Gives the path found by the most recent search, in order from start to end. While the search is still going, this is
+	 *  the path to the visited block closest to the destination.
+	 * 
+	 * @return The path, which is only complete once the search has finished, or null if there is no path.
+	 */
+	public PathView getPathView() {
+		if (searchState == NO_PATH)
+			return null;
+
+		int last = searchState == FOUND ? current : closest;
+		int length = 1;
+		for (int at = last; at != startID; at = parent[at])
+			++length;
+		int[] steps = new int[length]; //the parents lead back from the end, so fill in from the back
+		int at = last;
+		for (int i = length - 1; i >= 0; --i) {
+			steps[i] = at;
+			at = parent[at];
+		}
+		return new PathView(grid, steps, searchState == FOUND);
 	}
 	
 	/** Returns how long it took to find the most recent path.
@@ -123,6 +204,13 @@ public class AStarPathFinder {
 		}
 	}
 	
+	//the diagonal distance left to the goal, used to pick which visited block a partial path should end at
+	private int goalDistance(int at){
+		int xDist = Math.abs(at%xBlocks - goal%xBlocks);
+		int yDist = Math.abs(at/xBlocks - goal/xBlocks);
+		return xDist > yDist ? 14*yDist + 10*(xDist-yDist) : 14*xDist + 10*(yDist-xDist);
+	}
+
 	private void updateHScore(int to){
 		if(heuristicType==1)
 			hscore[to] = 10*(Math.abs(current/xBlocks - to/xBlocks) + Math.abs(current%xBlocks - to%xBlocks));
@@ -139,12 +227,12 @@ public class AStarPathFinder {
 
 	private void updateFScore(int to) {
 		int costFix = grid.diagonal(current,to)? 14 : 10;
-		fscore[to] = fscore[current] + costFix*costGrid[to] + hscore[to];
+		fscore[to] = fscore[current] + costFix*grid.costID(to) + hscore[to];
 	}
 
 	private boolean scoreIsBetterNow(int to) {
 		int costFix = grid.diagonal(current,to)? 14 : 10;
-		return fscore[current] + costFix*costGrid[to] + hscore[to]< fscore[to];
+		return fscore[current] + costFix*grid.costID(to) + hscore[to]< fscore[to];
 	}
 
 	private class fscoreComparator implements Comparator<Integer> {
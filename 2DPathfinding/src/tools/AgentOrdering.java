@@ -0,0 +1,48 @@
+package tools;
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/** Decides in which order a CooperativePathFinder plans its agents. Agents planned earlier get priority on the reservation table. */
+public interface AgentOrdering {
+
+	/** Plans the agents in the order they were given. */
+	public final static AgentOrdering AS_GIVEN = new AgentOrdering() {
+		@Override
+		public int[] order(Grid grid, Point[] starts, Point[] goals) {
+			int[] order = new int[starts.length];
+			for (int i = 0; i < order.length; ++i)
+				order[i] = i;
+			return order;
+		}
+	};
+
+	/** Plans the agents with the furthest to travel first, since they have the least room to make detours. */
+	public final static AgentOrdering FARTHEST_FIRST = new AgentOrdering() {
+		@Override
+		public int[] order(Grid grid, final Point[] starts, final Point[] goals) {
+			Integer[] agents = new Integer[starts.length];
+			for (int i = 0; i < agents.length; ++i)
+				agents[i] = i;
+			Arrays.sort(agents, new Comparator<Integer>() {
+				@Override
+				public int compare(Integer a1, Integer a2) {
+					return Double.compare(starts[a2].distance(goals[a2]), starts[a1].distance(goals[a1]));
+				}
+			});
+			int[] order = new int[agents.length];
+			for (int i = 0; i < order.length; ++i)
+				order[i] = agents[i];
+			return order;
+		}
+	};
+
+	/** 
+	 * 
+	 * @param grid The grid the agents are on.
+	 * @param starts The starting point of every agent.
+	 * @param goals The destination point of every agent.
+	 * @return Every agent's index exactly once, in the order they should be planned.
+	 */
+	public int[] order(Grid grid, Point[] starts, Point[] goals);
+}
@@ -0,0 +1,158 @@
+package tools;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+
+/** A WeightedGraph stored as three flat int arrays (compressed sparse row form): the edges leaving node n are the entries
+ *  from offsets[n] up to offsets[n+1] of targets and weights. This suits any graph, such as a navmesh, road network or
+ *  waypoint graph, and takes 4 bytes per node plus 8 per edge. Graphs saved to a file can be memory-mapped back in, so even
+ *  graphs with millions of nodes load instantly and are only paged in as they are searched. Each array is mapped as one
+ *  buffer, which can hold at most Integer.MAX_VALUE bytes, so a saved graph can have at most MAX_SAVED_SIZE nodes and as many edges. */
+public class CSRGraph implements WeightedGraph {
+
+	private final static int MAGIC = 0x43535231; //"CSR1"
+	/** The most nodes, and the most edges, a graph can have and still be saved and mapped back in (about 536 million). */
+	public final static int MAX_SAVED_SIZE = Integer.MAX_VALUE / 4 - 1;
+	private IntBuffer offsets;
+	private IntBuffer targets;
+	private IntBuffer weights;
+	private int nodeCount;
+	private int maxDegree;
+
+	/** Constructs a graph from its arrays, which are used directly rather than copied.
+	 *
+	 * @param offsets Where each node's edges start, with one extra entry at the end holding the total number of edges.
+	 * @param targets The node each edge leads to.
+	 * @param weights The weight of each edge, which must not be negative.
+	 */
+	public CSRGraph(int[] offsets, int[] targets, int[] weights) {
+		this(IntBuffer.wrap(offsets), IntBuffer.wrap(targets), IntBuffer.wrap(weights));
+	}
+
+	private CSRGraph(IntBuffer offsets, IntBuffer targets, IntBuffer weights) {
+		this.offsets = offsets;
+		this.targets = targets;
+		this.weights = weights;
+		nodeCount = offsets.limit() - 1;
+		for (int node = 0; node < nodeCount; ++node)
+			maxDegree = Math.max(maxDegree, offsets.get(node + 1) - offsets.get(node));
+	}
+
+	/** Constructs a graph with fractional edge weights. The pathfinders work in whole numbers, so each weight is multiplied by scale and rounded.
+	 *
+	 * @param offsets Where each node's edges start, with one extra entry at the end holding the total number of edges.
+	 * @param targets The node each edge leads to.
+	 * @param weights The weight of each edge, which must not be negative.
+	 * @param scale What to multiply the weights by, such as 100 to keep two decimal places. Distances found are in these units.
+	 * @return The graph.
+	 */
+	public static CSRGraph fromFloatWeights(int[] offsets, int[] targets, float[] weights, float scale) {
+		int[] scaled = new int[weights.length];
+		for (int i = 0; i < weights.length; ++i)
+			scaled[i] = Math.round(weights[i] * scale);
+		return new CSRGraph(offsets, targets, scaled);
+	}
+
+	/** Copies any graph, such as a Grid, into compressed sparse row form, for example so that it can be saved.
+	 *
+	 * @param graph The graph to copy.
+	 * @return The copy.
+	 */
+	public static CSRGraph fromGraph(WeightedGraph graph) {
+		int[] edgeTargets = new int[graph.getMaxDegree()], edgeWeights = new int[graph.getMaxDegree()];
+		int[] offsets = new int[graph.getNodeCount() + 1];
+		IntList targets = new IntList(), weights = new IntList();
+		for (int node = 0; node < graph.getNodeCount(); ++node) {
+			offsets[node] = targets.size();
+			int count = graph.getEdges(node, edgeTargets, edgeWeights);
+			for (int i = 0; i < count; ++i) {
+				targets.add(edgeTargets[i]);
+				weights.add(edgeWeights[i]);
+			}
+		}
+		offsets[graph.getNodeCount()] = targets.size();
+		return new CSRGraph(offsets, targets.toArray(), weights.toArray());
+	}
+
+	/** Memory-maps a graph saved by save. The file must not be changed while the graph is in use.
+	 *
+	 * @param file The file the graph was saved to.
+	 * @return The graph, read from the file as it is used.
+	 * @throws IOException If the file cannot be read or is not a graph saved by save.
+	 */
+	public static CSRGraph map(File file) throws IOException {
+		try (RandomAccessFile in = new RandomAccessFile(file, "r"); FileChannel channel = in.getChannel()) {
+			IntBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, 12).asIntBuffer();
+			if (header.get(0) != MAGIC)
+				throw new IOException(file + " is not a saved CSRGraph");
+			long nodes = header.get(1), edges = header.get(2);
+			if (nodes < 0 || nodes > MAX_SAVED_SIZE || edges < 0 || edges > MAX_SAVED_SIZE)
+				throw new IOException(file + " holds a graph too big to map, of " + nodes + " nodes and " + edges + " edges");
+			if (channel.size() < 12 + 4 * (nodes + 1 + 2 * edges))
+				throw new IOException(file + " is shorter than the graph it holds");
+
+			//each array is mapped on its own, since a single mapping can be at most Integer.MAX_VALUE bytes
+			long at = 12;
+			IntBuffer offsets = channel.map(FileChannel.MapMode.READ_ONLY, at, 4 * (nodes + 1)).asIntBuffer();
+			at += 4 * (nodes + 1);
+			IntBuffer targets = channel.map(FileChannel.MapMode.READ_ONLY, at, 4 * edges).asIntBuffer();
+			at += 4 * edges;
+			IntBuffer weights = channel.map(FileChannel.MapMode.READ_ONLY, at, 4 * edges).asIntBuffer();
+			return new CSRGraph(offsets, targets, weights);
+		}
+	}
+
+	/** Saves the graph so that it can be loaded with map.
+	 *
+	 * @param file The file to save to.
+	 * @throws IOException If the file cannot be written, or the graph has more than MAX_SAVED_SIZE nodes or edges.
+	 */
+	public void save(File file) throws IOException {
+		if (nodeCount > MAX_SAVED_SIZE || getEdgeCount() > MAX_SAVED_SIZE)
+			throw new IOException("A graph of " + nodeCount + " nodes and " + getEdgeCount() + " edges is too big to map back in");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(nodeCount);
+			out.writeInt(getEdgeCount());
+			for (int i = 0; i <= nodeCount; ++i)
+				out.writeInt(offsets.get(i));
+			for (int i = 0; i < getEdgeCount(); ++i)
+				out.writeInt(targets.get(i));
+			for (int i = 0; i < getEdgeCount(); ++i)
+				out.writeInt(weights.get(i));
+		}
+	}
+
+	/**
+	 *
+	 * @return The number of edges in the graph.
+	 */
+	public int getEdgeCount() {
+		return offsets.get(nodeCount);
+	}
+
+	@Override
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
+	@Override
+	public int getMaxDegree() {
+		return maxDegree;
+	}
+
+	@Override
+	public int getEdges(int node, int[] edgeTargets, int[] edgeWeights) {
+		int from = offsets.get(node), to = offsets.get(node + 1);
+		for (int i = from; i < to; ++i) {
+			edgeTargets[i - from] = targets.get(i);
+			edgeWeights[i - from] = weights.get(i);
+		}
+		return to - from;
+	}
+}
@@ -0,0 +1,750 @@
+package tools;
+import java.awt.Point;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Answers shortest path queries on a graph which never changes in a small fraction of the time a normal search takes, by preprocessing it once.
+ *  Preprocessing ranks every node by importance and removes ("contracts") them from least to most important, adding shortcut
+ *  edges wherever a shortest path went through a removed node. A query then only needs two small searches, one from each end,
+ *  which only ever move to more important nodes. Preprocessing can be saved to a file and loaded again. */
+public class ContractionHierarchy {
+
+	private final static int MAGIC = 0x43484931; //"CHI1"
+	private final static int UNREACHED = Integer.MAX_VALUE;
+	private final static int WITNESS_SETTLE_LIMIT = 150; //giving up on a witness search only costs an unneeded shortcut
+	private final static int SIMULATION_HOP_LIMIT = 3; //witness searches only estimating a node's priority can be much shorter
+	private final static int CHUNK = 64; //how many nodes a preprocessing thread takes at a time
+
+	private int nodeCount;
+	private int[] rank;
+	//edges to more important nodes, leaving each node (forward) and arriving at each node (backward).
+	//middle is the node a shortcut skips over, or -1 for an edge of the original graph
+	private int[] forwardOffsets, forwardTarget, forwardWeight, forwardMiddle;
+	private int[] backwardOffsets, backwardSource, backwardWeight, backwardMiddle;
+
+	//query state, reused between queries
+	private int[] forwardDist, backwardDist, forwardParent, backwardParent, forwardSeen, backwardSeen;
+	private int query = 0;
+	private IntMinHeap forwardOpen = new IntMinHeap(100), backwardOpen = new IntMinHeap(100);
+	private int best, meeting;
+	private double timeTaken = 0;//in ms
+
+	private ContractionHierarchy() {
+	}
+
+	/** Preprocesses a graph using every available processor.
+	 *
+	 * @param graph The graph to preprocess. It must not change afterwards.
+	 * @return The contraction hierarchy of the graph.
+	 */
+	public static ContractionHierarchy build(WeightedGraph graph) {
+		return build(graph, Runtime.getRuntime().availableProcessors());
+	}
+
+	/** Preprocesses a graph.
+	 *
+	 * @param graph The graph to preprocess. It must not change afterwards.
+	 * @param parallelism How many threads to preprocess on.
+	 * @return The contraction hierarchy of the graph.
+	 */
+	public static ContractionHierarchy build(WeightedGraph graph, int parallelism) {
+		ContractionHierarchy hierarchy = new ContractionHierarchy();
+		new Builder(graph, parallelism).build(hierarchy);
+		hierarchy.allocateQueryState();
+		return hierarchy;
+	}
+
+	/** Loads a contraction hierarchy saved by save.
+	 *
+	 * @param file The file the hierarchy was saved to.
+	 * @return The contraction hierarchy.
+	 * @throws IOException
+	 */
+	public static ContractionHierarchy load(File file) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+			if (in.readInt() != MAGIC)
+				throw new IOException(file + " is not a saved ContractionHierarchy");
+			ContractionHierarchy hierarchy = new ContractionHierarchy();
+			hierarchy.nodeCount = in.readInt();
+			hierarchy.rank = readArray(in);
+			hierarchy.forwardOffsets = readArray(in);
+			hierarchy.forwardTarget = readArray(in);
+			hierarchy.forwardWeight = readArray(in);
+			hierarchy.forwardMiddle = readArray(in);
+			hierarchy.backwardOffsets = readArray(in);
+			hierarchy.backwardSource = readArray(in);
+			hierarchy.backwardWeight = readArray(in);
+			hierarchy.backwardMiddle = readArray(in);
+			hierarchy.allocateQueryState();
+			return hierarchy;
+		}
+	}
+
+	/** Saves the hierarchy so that it can be loaded without preprocessing the graph again.
+	 *
+	 * @param file The file to save to.
+	 * @throws IOException
+	 */
+	public void save(File file) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+			out.writeInt(MAGIC);
+			out.writeInt(nodeCount);
+			int[][] arrays = { rank, forwardOffsets, forwardTarget, forwardWeight, forwardMiddle,
+					backwardOffsets, backwardSource, backwardWeight, backwardMiddle };
+			for (int[] array : arrays) {
+				out.writeInt(array.length);
+				for (int value : array)
+					out.writeInt(value);
+			}
+		}
+	}
+
+	private static int[] readArray(DataInputStream in) throws IOException {
+		int[] array = new int[in.readInt()];
+		for (int i = 0; i < array.length; ++i)
+			array[i] = in.readInt();
+		return array;
+	}
+
+	private void allocateQueryState() {
+		forwardDist = new int[nodeCount];
+		backwardDist = new int[nodeCount];
+		forwardParent = new int[nodeCount];
+		backwardParent = new int[nodeCount];
+		forwardSeen = new int[nodeCount];
+		backwardSeen = new int[nodeCount];
+	}
+
+	/**
+	 *
+	 * @return The number of shortcut edges added by preprocessing.
+	 */
+	public int getShortcutCount() {
+		int shortcuts = 0;
+		for (int middle : forwardMiddle)
+			if (middle != -1)
+				++shortcuts;
+		for (int middle : backwardMiddle)
+			if (middle != -1)
+				++shortcuts;
+		return shortcuts;
+	}
+
+	/** Finds the length of the shortest path from start to goal.
+	 *
+	 * @param start The node the path starts at.
+	 * @param goal The node the path ends at.
+	 * @return The total weight of the shortest path, or -1 if there is no path.
+	 */
+	public int findDistance(int start, int goal) {
+		long startTime = System.nanoTime();
+		search(start, goal);
+		timeTaken = (System.nanoTime() - startTime)/1000000.0;
+		return best == UNREACHED ? -1 : best;
+	}
+
+	/** Finds the shortest path from start to goal, with every shortcut expanded back into the edges of the original graph.
+	 *
+	 * @param start The node the path starts at.
+	 * @param goal The node the path ends at.
+	 * @return The nodes along the path in order, starting with start and ending with goal, or null if there is no path.
+	 */
+	public int[] findPath(int start, int goal) {
+		long startTime = System.nanoTime();
+		search(start, goal);
+		if (best == UNREACHED)
+			return null;
+
+		//the edges of the path, as (from, to, middle) triples, still containing shortcuts
+		IntList edges = new IntList();
+		for (int at = meeting; at != start;) {
+			int edge = forwardParent[at];
+			int from = sourceOfForward(edge);
+			edges.add(from);
+			edges.add(at);
+			edges.add(forwardMiddle[edge]);
+			at = from;
+		}
+		reverseTriples(edges);
+		for (int at = meeting; at != goal;) {
+			int edge = backwardParent[at];
+			int to = targetOfBackward(edge);
+			edges.add(at);
+			edges.add(to);
+			edges.add(backwardMiddle[edge]);
+			at = to;
+		}
+
+		IntList path = new IntList();
+		path.add(start);
+		IntList stack = new IntList();
+		for (int i = edges.size() - 3; i >= 0; i -= 3) {
+			stack.add(edges.get(i));
+			stack.add(edges.get(i + 1));
+			stack.add(edges.get(i + 2));
+		}
+		while (!stack.isEmpty()) { //the top of the stack is always the next edge along the path
+			int middle = stack.removeLast(), to = stack.removeLast(), from = stack.removeLast();
+			if (middle == -1) {
+				path.add(to);
+				continue;
+			}
+			//a shortcut from -> middle -> to, where middle is less important than both ends
+			stack.add(middle);
+			stack.add(to);
+			stack.add(forwardMiddle[findForward(middle, to)]);
+			stack.add(from);
+			stack.add(middle);
+			stack.add(backwardMiddle[findBackward(middle, from)]);
+		}
+		timeTaken = (System.nanoTime() - startTime)/1000000.0;
+		return path.toArray();
+	}
+
+	/** Finds the shortest path between two points of the grid the hierarchy was built from.
+	 *
+	 * @param grid The grid the hierarchy was built from.
+	 * @param start The starting point, as a 2D coordinate on the grid.
+	 * @param end The destination point, as a 2D coordinate on the grid.
+	 * @return The shortest path from start to end, in the same order as AStarPathFinder.findPath gives, or null if there is no path.
+	 */
+	public Path findPath(Grid grid, Point start, Point end) {
+		int[] nodes = findPath(grid.pointToID(start), grid.pointToID(end));
+		if (nodes == null)
+			return null;
+		Path path = new Path();
+		for (int i = nodes.length - 1; i >= 0; --i)
+			path.add(grid.idToPoint(nodes[i]));
+		return path;
+	}
+
+	/** Returns how long the most recent query took.
+	 *
+	 * @return The time taken (in milliseconds).
+	 */
+	public double getLastTimeTaken() {
+		return timeTaken;
+	}
+
+	private void search(int start, int goal) {
+		if (++query == Integer.MAX_VALUE) { //wrap around before old queries can be mistaken for this one
+			Arrays.fill(forwardSeen, 0);
+			Arrays.fill(backwardSeen, 0);
+			query = 1;
+		}
+		forwardOpen.clear();
+		backwardOpen.clear();
+		forwardDist[start] = 0;
+		forwardSeen[start] = query;
+		forwardOpen.add(start, 0);
+		backwardDist[goal] = 0;
+		backwardSeen[goal] = query;
+		backwardOpen.add(goal, 0);
+		best = start == goal ? 0 : UNREACHED;
+		meeting = start == goal ? start : -1;
+
+		while (true) {
+			//neither search can improve on best once its nearest open node is further than it
+			boolean forwardDone = forwardOpen.isEmpty() || forwardOpen.peekKey() >= best;
+			boolean backwardDone = backwardOpen.isEmpty() || backwardOpen.peekKey() >= best;
+			if (forwardDone && backwardDone)
+				return;
+			if (!forwardDone && (backwardDone || forwardOpen.peekKey() <= backwardOpen.peekKey()))
+				stepForward();
+			else
+				stepBackward();
+		}
+	}
+
+	private void stepForward() {
+		int dist = forwardOpen.peekKey();
+		int at = forwardOpen.poll();
+		if (dist != forwardDist[at])
+			return; //a stale entry, this node was already reached more cheaply
+		if (backwardSeen[at] == query && dist + backwardDist[at] < best) {
+			best = dist + backwardDist[at];
+			meeting = at;
+		}
+		//if a more important node already reached is a shorter way here, nothing past this node can be on the shortest path
+		for (int e = backwardOffsets[at]; e < backwardOffsets[at + 1]; ++e) {
+			int from = backwardSource[e];
+			if (forwardSeen[from] == query && forwardDist[from] + backwardWeight[e] < dist)
+				return;
+		}
+		for (int e = forwardOffsets[at]; e < forwardOffsets[at + 1]; ++e) {
+			int to = forwardTarget[e];
+			int newDist = dist + forwardWeight[e];
+			if (forwardSeen[to] != query || newDist < forwardDist[to]) {
+				forwardSeen[to] = query;
+				forwardDist[to] = newDist;
+				forwardParent[to] = e;
+				forwardOpen.add(to, newDist);
+			}
+		}
+	}
+
+	private void stepBackward() {
+		int dist = backwardOpen.peekKey();
+		int at = backwardOpen.poll();
+		if (dist != backwardDist[at])
+			return; //a stale entry, this node was already reached more cheaply
+		if (forwardSeen[at] == query && dist + forwardDist[at] < best) {
+			best = dist + forwardDist[at];
+			meeting = at;
+		}
+		for (int e = forwardOffsets[at]; e < forwardOffsets[at + 1]; ++e) {
+			int to = forwardTarget[e];
+			if (backwardSeen[to] == query && backwardDist[to] + forwardWeight[e] < dist)
+				return;
+		}
+		for (int e = backwardOffsets[at]; e < backwardOffsets[at + 1]; ++e) {
+			int from = backwardSource[e];
+			int newDist = dist + backwardWeight[e];
+			if (backwardSeen[from] != query || newDist < backwardDist[from]) {
+				backwardSeen[from] = query;
+				backwardDist[from] = newDist;
+				backwardParent[from] = e;
+				backwardOpen.add(from, newDist);
+			}
+		}
+	}
+
+	//the node whose forward edges contain edge
+	private int sourceOfForward(int edge) {
+		return upperBound(forwardOffsets, edge) - 1;
+	}
+
+	//the node whose backward edges contain edge
+	private int targetOfBackward(int edge) {
+		return upperBound(backwardOffsets, edge) - 1;
+	}
+
+	//the first index whose offset is greater than edge
+	private static int upperBound(int[] offsets, int edge) {
+		int low = 0, high = offsets.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (offsets[mid] <= edge)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	private int findForward(int from, int to) {
+		for (int e = forwardOffsets[from]; e < forwardOffsets[from + 1]; ++e)
+			if (forwardTarget[e] == to)
+				return e;
+		throw new IllegalStateException("Missing edge " + from + " -> " + to);
+	}
+
+	private int findBackward(int to, int from) {
+		for (int e = backwardOffsets[to]; e < backwardOffsets[to + 1]; ++e)
+			if (backwardSource[e] == from)
+				return e;
+		throw new IllegalStateException("Missing edge " + from + " -> " + to);
+	}
+
+	private static void reverseTriples(IntList triples) {
+		for (int i = 0, j = triples.size() - 3; i < j; i += 3, j -= 3) {
+			for (int k = 0; k < 3; ++k) {
+				int swap = triples.get(i + k);
+				triples.set(i + k, triples.get(j + k));
+				triples.set(j + k, swap);
+			}
+		}
+	}
+
+	/** The edges of one node while the graph is being contracted, as parallel arrays. At most one edge is kept to each neighbour. */
+	private static class Edges {
+		int[] node = new int[4];
+		int[] weight = new int[4];
+		int[] middle = new int[4];
+		int size;
+
+		//adds an edge, or lowers the weight of the edge already there
+		void addOrImprove(int to, int w, int mid) {
+			for (int i = 0; i < size; ++i) {
+				if (node[i] == to) {
+					if (w < weight[i]) {
+						weight[i] = w;
+						middle[i] = mid;
+					}
+					return;
+				}
+			}
+			if (size == node.length) {
+				node = Arrays.copyOf(node, size * 2);
+				weight = Arrays.copyOf(weight, size * 2);
+				middle = Arrays.copyOf(middle, size * 2);
+			}
+			node[size] = to;
+			weight[size] = w;
+			middle[size] = mid;
+			++size;
+		}
+
+		void remove(int to) {
+			for (int i = 0; i < size; ++i) {
+				if (node[i] == to) {
+					--size;
+					node[i] = node[size];
+					weight[i] = weight[size];
+					middle[i] = middle[size];
+					return;
+				}
+			}
+		}
+
+		int maxWeight() {
+			int max = 0;
+			for (int i = 0; i < size; ++i)
+				max = Math.max(max, weight[i]);
+			return max;
+		}
+	}
+
+	/** Contracts a graph in rounds. Each round picks every node which is less important than all its neighbours, so no two are
+	 *  next to each other, and works out their shortcuts in parallel. The shortcuts are then added one thread at a time. */
+	private static class Builder {
+		private int nodeCount;
+		private int parallelism;
+		private Edges[] outEdges, inEdges;
+		private int[] priority;
+		private int[] contractedNeighbours;
+		private int[] level; //one more than the highest level of any contracted neighbour, which keeps the hierarchy shallow
+		private boolean[] inRound;
+		private int[] touchedIn; //the round in which each node last had a neighbour contracted
+		private int roundNumber = 0;
+		private WitnessSearch[] searches;
+		private IntList[] roundShortcuts; //the shortcuts each node of the round needs, as (from, to, weight) triples
+
+		Builder(WeightedGraph graph, int parallelism) {
+			this.parallelism = parallelism;
+			nodeCount = graph.getNodeCount();
+			outEdges = new Edges[nodeCount];
+			inEdges = new Edges[nodeCount];
+			for (int i = 0; i < nodeCount; ++i) {
+				outEdges[i] = new Edges();
+				inEdges[i] = new Edges();
+			}
+			int[] targets = new int[graph.getMaxDegree()], weights = new int[graph.getMaxDegree()];
+			for (int from = 0; from < nodeCount; ++from) {
+				int count = graph.getEdges(from, targets, weights);
+				for (int e = 0; e < count; ++e) {
+					if (targets[e] == from)
+						continue;
+					outEdges[from].addOrImprove(targets[e], weights[e], -1);
+					inEdges[targets[e]].addOrImprove(from, weights[e], -1);
+				}
+			}
+			priority = new int[nodeCount];
+			contractedNeighbours = new int[nodeCount];
+			level = new int[nodeCount];
+			inRound = new boolean[nodeCount];
+			touchedIn = new int[nodeCount];
+			roundShortcuts = new IntList[nodeCount];
+			searches = new WitnessSearch[parallelism];
+			for (int i = 0; i < parallelism; ++i)
+				searches[i] = new WitnessSearch(nodeCount);
+		}
+
+		void build(ContractionHierarchy hierarchy) {
+			int[] rank = new int[nodeCount];
+			IntList[] forward = new IntList[nodeCount], backward = new IntList[nodeCount]; //(node, weight, middle) triples
+			ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+			try {
+				int[] remaining = new int[nodeCount];
+				for (int i = 0; i < nodeCount; ++i)
+					remaining[i] = i;
+				int remainingCount = nodeCount;
+				forEach(pool, remaining, remainingCount, new NodeAction() {
+					public void run(int node, WitnessSearch search) {
+						priority[node] = findPriority(node, search);
+					}
+				});
+
+				int nextRank = 0;
+				final boolean[] chosen = new boolean[nodeCount];
+				while (remainingCount > 0) {
+					forEach(pool, remaining, remainingCount, new NodeAction() {
+						public void run(int node, WitnessSearch search) {
+							chosen[node] = isLocalMinimum(node);
+						}
+					});
+					int[] round = new int[remainingCount];
+					int roundCount = 0, kept = 0;
+					for (int i = 0; i < remainingCount; ++i) {
+						int node = remaining[i];
+						if (chosen[node]) {
+							round[roundCount++] = node;
+							inRound[node] = true;
+						}
+						else
+							remaining[kept++] = node;
+					}
+					remainingCount = kept;
+
+					forEach(pool, round, roundCount, new NodeAction() {
+						public void run(int node, WitnessSearch search) {
+							IntList shortcuts = new IntList();
+							findShortcuts(node, search, shortcuts);
+							roundShortcuts[node] = shortcuts;
+						}
+					});
+
+					IntList touched = new IntList();
+					++roundNumber;
+					for (int i = 0; i < roundCount; ++i) {
+						int node = round[i];
+						rank[node] = nextRank++;
+						forward[node] = toTriples(outEdges[node]);
+						backward[node] = toTriples(inEdges[node]);
+						contract(node, touched);
+						chosen[node] = false;
+					}
+					for (int i = 0; i < roundCount; ++i)
+						inRound[round[i]] = false;
+
+					int[] neighbours = touched.toArray();
+					forEach(pool, neighbours, neighbours.length, new NodeAction() {
+						public void run(int node, WitnessSearch search) {
+							priority[node] = findPriority(node, search);
+						}
+					});
+				}
+			} finally {
+				pool.shutdown();
+			}
+
+			hierarchy.nodeCount = nodeCount;
+			hierarchy.rank = rank;
+			int[][] forwardCSR = toCSR(forward);
+			hierarchy.forwardOffsets = forwardCSR[0];
+			hierarchy.forwardTarget = forwardCSR[1];
+			hierarchy.forwardWeight = forwardCSR[2];
+			hierarchy.forwardMiddle = forwardCSR[3];
+			int[][] backwardCSR = toCSR(backward);
+			hierarchy.backwardOffsets = backwardCSR[0];
+			hierarchy.backwardSource = backwardCSR[1];
+			hierarchy.backwardWeight = backwardCSR[2];
+			hierarchy.backwardMiddle = backwardCSR[3];
+		}
+
+		//removes a node from the graph, adding its shortcuts, and collects the neighbours whose priority has to be found again
+		private void contract(int node, IntList touched) {
+			Edges out = outEdges[node], in = inEdges[node];
+			for (int i = 0; i < out.size; ++i) {
+				inEdges[out.node[i]].remove(node);
+				touch(out.node[i], level[node], touched);
+			}
+			for (int i = 0; i < in.size; ++i) {
+				outEdges[in.node[i]].remove(node);
+				touch(in.node[i], level[node], touched);
+			}
+			IntList shortcuts = roundShortcuts[node];
+			for (int i = 0; i < shortcuts.size(); i += 3) {
+				int from = shortcuts.get(i), to = shortcuts.get(i + 1), weight = shortcuts.get(i + 2);
+				outEdges[from].addOrImprove(to, weight, node);
+				inEdges[to].addOrImprove(from, weight, node);
+			}
+			roundShortcuts[node] = null;
+			outEdges[node] = null;
+			inEdges[node] = null;
+		}
+
+		private void touch(int neighbour, int contractedLevel, IntList touched) {
+			++contractedNeighbours[neighbour];
+			level[neighbour] = Math.max(level[neighbour], contractedLevel + 1);
+			if (touchedIn[neighbour] != roundNumber) {
+				touchedIn[neighbour] = roundNumber;
+				touched.add(neighbour);
+			}
+		}
+
+		//nodes which add few shortcuts compared to the edges they remove, and whose neighbours have not been contracted much, go first
+		private int findPriority(int node, WitnessSearch search) {
+			int shortcuts = findShortcuts(node, search, null);
+			return 2*(shortcuts - outEdges[node].size - inEdges[node].size) + contractedNeighbours[node] + level[node];
+		}
+
+		private boolean isLocalMinimum(int node) {
+			return isLowerThanAll(node, outEdges[node]) && isLowerThanAll(node, inEdges[node]);
+		}
+
+		private boolean isLowerThanAll(int node, Edges edges) {
+			for (int i = 0; i < edges.size; ++i) {
+				int other = edges.node[i];
+				if (priority[other] < priority[node] || (priority[other] == priority[node] && other < node))
+					return false;
+			}
+			return true;
+		}
+
+		//finds the shortcuts needed to remove node, adding them to shortcuts as triples if it is not null
+		private int findShortcuts(int node, WitnessSearch search, IntList shortcuts) {
+			Edges in = inEdges[node], out = outEdges[node];
+			int maxOut = out.maxWeight();
+			int count = 0;
+			for (int i = 0; i < in.size; ++i) {
+				int from = in.node[i], toNode = in.weight[i];
+				search.run(from, node, toNode + maxOut, shortcuts == null ? SIMULATION_HOP_LIMIT : Integer.MAX_VALUE, out, outEdges, inRound);
+				for (int j = 0; j < out.size; ++j) {
+					int to = out.node[j];
+					if (to == from)
+						continue;
+					int viaNode = toNode + out.weight[j];
+					if (!search.reached(to, viaNode)) {
+						++count;
+						if (shortcuts != null) {
+							shortcuts.add(from);
+							shortcuts.add(to);
+							shortcuts.add(viaNode);
+						}
+					}
+				}
+			}
+			return count;
+		}
+
+		private void forEach(ExecutorService pool, final int[] nodes, final int count, final NodeAction action) {
+			final AtomicInteger next = new AtomicInteger();
+			List<Callable<Void>> workers = new ArrayList<Callable<Void>>();
+			for (int t = 0; t < parallelism; ++t) {
+				final WitnessSearch search = searches[t];
+				workers.add(new Callable<Void>() {
+					public Void call() {
+						int from;
+						while ((from = next.getAndAdd(CHUNK)) < count)
+							for (int i = from; i < Math.min(from + CHUNK, count); ++i)
+								action.run(nodes[i], search);
+						return null;
+					}
+				});
+			}
+			try {
+				for (Future<Void> done : pool.invokeAll(workers))
+					done.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while preprocessing", e);
+			} catch (ExecutionException e) {
+				throw new IllegalStateException("Preprocessing failed", e.getCause());
+			}
+		}
+
+		private static IntList toTriples(Edges edges) {
+			IntList triples = new IntList(edges.size * 3);
+			for (int i = 0; i < edges.size; ++i) {
+				triples.add(edges.node[i]);
+				triples.add(edges.weight[i]);
+				triples.add(edges.middle[i]);
+			}
+			return triples;
+		}
+
+		private static int[][] toCSR(IntList[] triples) {
+			int[] offsets = new int[triples.length + 1];
+			for (int i = 0; i < triples.length; ++i)
+				offsets[i + 1] = offsets[i] + triples[i].size() / 3;
+			int[] node = new int[offsets[triples.length]], weight = new int[node.length], middle = new int[node.length];
+			for (int i = 0; i < triples.length; ++i) {
+				for (int j = 0, e = offsets[i]; j < triples[i].size(); j += 3, ++e) {
+					node[e] = triples[i].get(j);
+					weight[e] = triples[i].get(j + 1);
+					middle[e] = triples[i].get(j + 2);
+				}
+			}
+			return new int[][] { offsets, node, weight, middle };
+		}
+	}
+
+	private interface NodeAction {
+		public void run(int node, WitnessSearch search);
+	}
+
+	/** A Dijkstra search from one node which skips the node being contracted, looking for paths which make a shortcut unnecessary.
+	 *  Each preprocessing thread has its own. */
+	private static class WitnessSearch {
+		private int[] dist;
+		private int[] hops;
+		private int[] seenIn;
+		private int[] targetIn; //the search in which each node was last one of the nodes being looked for
+		private int search = 0;
+		private IntMinHeap open = new IntMinHeap(64);
+
+		WitnessSearch(int nodeCount) {
+			dist = new int[nodeCount];
+			hops = new int[nodeCount];
+			seenIn = new int[nodeCount];
+			targetIn = new int[nodeCount];
+		}
+
+		//searches from "from" until every one of targets is settled, or nothing nearer than maxDist and fewer than maxHops edges away is left
+		void run(int from, int skip, int maxDist, int maxHops, Edges targets, Edges[] outEdges, boolean[] inRound) {
+			if (++search == Integer.MAX_VALUE) {
+				Arrays.fill(seenIn, 0);
+				Arrays.fill(targetIn, 0);
+				search = 1;
+			}
+			int targetsLeft = 0;
+			for (int i = 0; i < targets.size; ++i) {
+				if (targets.node[i] != from && targetIn[targets.node[i]] != search) {
+					targetIn[targets.node[i]] = search;
+					++targetsLeft;
+				}
+			}
+			open.clear();
+			dist[from] = 0;
+			hops[from] = 0;
+			seenIn[from] = search;
+			open.add(from, 0);
+			int settled = 0;
+			while (!open.isEmpty() && open.peekKey() <= maxDist && settled < WITNESS_SETTLE_LIMIT) {
+				int d = open.peekKey();
+				int at = open.poll();
+				if (d != dist[at])
+					continue;
+				++settled;
+				if (targetIn[at] == search && --targetsLeft == 0)
+					break;
+				if (hops[at] >= maxHops)
+					continue;
+				Edges out = outEdges[at];
+				for (int i = 0; i < out.size; ++i) {
+					int to = out.node[i];
+					if (to == skip || inRound[to])
+						continue;
+					int newDist = d + out.weight[i];
+					if (newDist <= maxDist && (seenIn[to] != search || newDist < dist[to])) {
+						seenIn[to] = search;
+						hops[to] = hops[at] + 1;
+						dist[to] = newDist;
+						open.add(to, newDist);
+					}
+				}
+			}
+		}
+
+		//true if the last search found a path to node no longer than limit
+		boolean reached(int node, int limit) {
+			return seenIn[node] == search && dist[node] <= limit;
+		}
+	}
+}
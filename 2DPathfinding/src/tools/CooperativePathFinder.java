@@ -0,0 +1,286 @@
+package tools;
+import java.awt.Point;
+import java.util.Arrays;
+
+/** Finds paths for many agents at once so that they do not run into each other (Windowed Hierarchical Cooperative A*).
+ *  Agents are planned one at a time in (spot, time) space, each avoiding the spots reserved by the agents planned before it.
+ *  Searches only look a fixed number of time steps ahead, so agents that have not reached their destination by the end of
+ *  the window should have their paths found again, typically once they are half way through the window. */
+public class CooperativePathFinder {
+
+	private final static int DEFAULT_MAX_EXPANSIONS = 200; //enough for nearly every agent to get as far as it could with no limit
+	private Grid grid;
+	private ReservationTable reservations;
+	private AgentOrdering ordering;
+	private int window;
+	private int maxExpansions;
+	private int xBlocks;
+	private int agent;
+	private int goal;
+	private int overBudget;
+	private int conflicts;
+	private double timeTaken = 0;//in ms
+
+	//the (spot, time) search nodes, stored as parallel arrays and looked up by their (time, spot) key
+	private LongIntMap nodeAt = new LongIntMap(1024);
+	private int[] nodeBlock = new int[1024];
+	private int[] nodeTime = new int[1024];
+	private int[] nodeG = new int[1024];
+	private int[] nodeParent = new int[1024];
+	private boolean[] nodeClosed = new boolean[1024];
+	private int nodeCount;
+	private IntMinHeap open = new IntMinHeap(256);
+	//the agent standing on each block which has not been planned yet. Agents planned before it go around it for the whole
+	//window, so that it can always wait where it is if it has nowhere else to go, and paths never run into each other
+	private int[] waitingAt;
+
+	/** Creates the pathfinder with a window of 16 time steps, planning agents with the furthest to travel first and expanding
+	 *  at most 200 search nodes per agent.
+	 *
+	 * @param grid The grid to find paths on.
+	 */
+	public CooperativePathFinder(Grid grid) {
+		this(grid, 16, AgentOrdering.FARTHEST_FIRST, DEFAULT_MAX_EXPANSIONS);
+	}
+
+	/** Creates the pathfinder.
+	 *
+	 * @param grid The grid to find paths on.
+	 * @param window How many time steps ahead each agent's path is planned.
+	 * @param ordering Decides which agents are planned first, and so get priority.
+	 * @param maxExpansions The most search nodes one agent may expand. Agents hitting this limit get the path which came closest to their destination, which keeps the time taken for many agents bounded.
+	 */
+	public CooperativePathFinder(Grid grid, int window, AgentOrdering ordering, int maxExpansions) {
+		this.grid = grid;
+		this.window = window;
+		this.ordering = ordering;
+		this.maxExpansions = maxExpansions;
+		xBlocks = grid.getXBlocks();
+		reservations = new ReservationTable(grid);
+		waitingAt = new int[grid.getXBlocks()*grid.getYBlocks()];
+		Arrays.fill(waitingAt, ReservationTable.FREE);
+	}
+
+	/** Finds collision free paths for every agent. The i-th step of each Path is where that agent should be at time step i,
+	 *  so a Path repeats a point when the agent has to wait. Paths start at the agent's starting point and end either at its
+	 *  destination or wherever it gets to by the end of the window.
+	 *
+	 * @param starts The starting point of every agent.
+	 * @param goals The destination point of every agent.
+	 * @return The path of every agent, in the same order as starts.
+	 */
+	public Path[] findPaths(Point[] starts, Point[] goals) {
+		return findPaths(starts, goals, 0);
+	}
+
+	/** Finds collision free paths for every agent within a time budget, such as what is left of a game tick. Once the budget
+	 *  is spent, the agents not yet planned wait where they are, which the agents planned before them have left free, and
+	 *  should be planned again on a later tick.
+	 *
+	 * @param starts The starting point of every agent.
+	 * @param goals The destination point of every agent.
+	 * @param budgetNanos How long to spend planning in total, in nanoseconds, or 0 for no limit. It is checked between agents, so it can be overrun by one search of at most maxExpansions nodes, plus reserving the window for each agent left.
+	 * @return The path of every agent, in the same order as starts.
+	 */
+	public Path[] findPaths(Point[] starts, Point[] goals, long budgetNanos) {
+		long startTime = System.nanoTime();
+		reservations.clear();
+		overBudget = 0;
+		conflicts = 0;
+		for (int a = 0; a < starts.length; ++a)
+			waitingAt[grid.pointToID(starts[a])] = a;
+		Path[] paths = new Path[starts.length];
+		int[] order = ordering.order(grid, starts, goals);
+		for (int i = 0; i < order.length; ++i) {
+			int a = order[i];
+			int start = grid.pointToID(starts[a]);
+			waitingAt[start] = ReservationTable.FREE;
+			if (budgetNanos > 0 && System.nanoTime() - startTime > budgetNanos) {
+				++overBudget;
+				paths[a] = waitAt(a, start);
+			}
+			else
+				paths[a] = findAgentPath(a, start, grid.pointToID(goals[a]));
+		}
+		timeTaken = (System.nanoTime() - startTime)/1000000.0;
+		return paths;
+	}
+
+	/** Returns how long it took to find the most recent set of paths.
+	 *
+	 * @return The time taken (in milliseconds).
+	 */
+	public double getLastTimeTaken() {
+		return timeTaken;
+	}
+
+	/**
+	 *
+	 * @return How many agents the most recent call to findPaths planned after its time budget ran out.
+	 */
+	public int getLastOverBudgetCount() {
+		return overBudget;
+	}
+
+	/** Returns how many (spot, time) pairs of the most recent set of paths could not be reserved because an agent planned
+	 *  earlier already held them, in which case those paths run into each other. This only happens when two agents start
+	 *  on the same spot.
+	 *
+	 * @return The number of conflicting reservations, which is 0 when every path is collision free.
+	 */
+	public int getLastConflictCount() {
+		return conflicts;
+	}
+
+	/**
+	 *
+	 * @return The reservations made by the most recent call to findPaths.
+	 */
+	public ReservationTable getReservations() {
+		return reservations;
+	}
+
+	private Path findAgentPath(int agentID, int start, int goalID) {
+		agent = agentID;
+		goal = goalID;
+		nodeAt.clear();
+		nodeCount = 0;
+		open.clear();
+
+		//the agents planned so far have gone around the start, so the agent can always wait there if it gets no further
+		int best = addNode(start, 0, 0, -1);
+		open.add(best, heuristic(start));
+		int found = -1;
+		int expansions = 0;
+
+		while (!open.isEmpty()) {
+			int node = open.poll();
+			if (nodeClosed[node])
+				continue; //a stale entry, this node was already reached more cheaply
+			nodeClosed[node] = true;
+
+			int block = nodeBlock[node];
+			if (heuristic(block) < heuristic(nodeBlock[best]) && isFreeFrom(block, nodeTime[node]))
+				best = node; //the agent will stay here for the rest of the window if the search is cut short, so it must be free
+			if ((block == goal && isFreeFrom(block, nodeTime[node])) || nodeTime[node] == window) {
+				found = node;
+				break;
+			}
+			if (++expansions > maxExpansions)
+				break;
+			addAdjacentNodes(node);
+		}
+		if (found == -1)
+			found = best; //no way to last the window was found, so take the safe spot which got closest
+
+		return reservePath(found);
+	}
+
+	private Path waitAt(int agentID, int start) {
+		agent = agentID;
+		nodeAt.clear();
+		nodeCount = 0;
+		return reservePath(addNode(start, 0, 0, -1));
+	}
+
+	private void addAdjacentNodes(int node) {
+		int block = nodeBlock[node];
+		addToOpen(node, block); //waiting where we are
+		addToOpen(node, grid.IDAbove(block));
+		addToOpen(node, grid.IDBelow(block));
+		addToOpen(node, grid.IDLeft(block));
+		addToOpen(node, grid.IDRight(block));
+
+		addToOpen(node, grid.IDAbove(grid.IDLeft(block)));
+		addToOpen(node, grid.IDAbove(grid.IDRight(block)));
+		addToOpen(node, grid.IDBelow(grid.IDLeft(block)));
+		addToOpen(node, grid.IDBelow(grid.IDRight(block)));
+	}
+
+	private void addToOpen(int from, int to) {
+		int block = nodeBlock[from];
+		int time = nodeTime[from] + 1;
+		if (to != block && !grid.canWalkID(block, to))
+			return;
+		if (reservations.reserverID(to, time) != ReservationTable.FREE || waitingAt[to] != ReservationTable.FREE)
+			return;
+		int swapper = reservations.reserverID(to, time - 1);
+		if (swapper != ReservationTable.FREE && reservations.reserverID(block, time) == swapper)
+			return; //we would pass through an agent coming the other way
+
+		int g = nodeG[from] + (to == block ? 10 : (grid.diagonal(block, to) ? 14 : 10)*grid.costID(to));
+		int node = nodeAt.get(key(to, time), -1);
+		if (node == -1)
+			node = addNode(to, time, g, from);
+		else if (!nodeClosed[node] && g < nodeG[node]) {
+			nodeG[node] = g;
+			nodeParent[node] = from;
+		}
+		else
+			return;
+		open.add(node, g + heuristic(to));
+	}
+
+	private int addNode(int block, int time, int g, int parent) {
+		if (nodeCount == nodeBlock.length) {
+			int length = nodeCount * 2;
+			nodeBlock = Arrays.copyOf(nodeBlock, length);
+			nodeTime = Arrays.copyOf(nodeTime, length);
+			nodeG = Arrays.copyOf(nodeG, length);
+			nodeParent = Arrays.copyOf(nodeParent, length);
+			nodeClosed = Arrays.copyOf(nodeClosed, length);
+		}
+		int node = nodeCount++;
+		nodeBlock[node] = block;
+		nodeTime[node] = time;
+		nodeG[node] = g;
+		nodeParent[node] = parent;
+		nodeClosed[node] = false;
+		nodeAt.put(key(block, time), node);
+		return node;
+	}
+
+	//the diagonal heuristic, which never overestimates since every block costs at least 1 to traverse
+	private int heuristic(int block) {
+		int xDist = Math.abs(block%xBlocks - goal%xBlocks);
+		int yDist = Math.abs(block/xBlocks - goal/xBlocks);
+		return xDist > yDist ?
+				14*yDist + 10*(xDist-yDist) :
+				14*xDist + 10*(yDist-xDist);
+	}
+
+	private boolean isFreeFrom(int block, int time) {
+		for (int t = time; t <= window; ++t)
+			if (reservations.reserverID(block, t) != ReservationTable.FREE)
+				return false;
+		return true;
+	}
+
+	private Path reservePath(int last) {
+		int[] blocks = new int[nodeTime[last] + 1];
+		for (int node = last; node != -1; node = nodeParent[node])
+			blocks[nodeTime[node]] = nodeBlock[node];
+
+		Path path = new Path();
+		for (int t = 0; t < blocks.length; ++t) {
+			reserve(blocks[t], t);
+			path.add(grid.idToPoint(blocks[t]));
+		}
+		for (int t = blocks.length; t <= window; ++t) //the agent stays where it stopped for the rest of the window
+			reserve(blocks[blocks.length - 1], t);
+		return path;
+	}
+
+	//an agent planned earlier keeps its reservation, since taking it away would hide the collision from its path
+	private void reserve(int block, int time) {
+		int reserver = reservations.reserverID(block, time);
+		if (reserver != ReservationTable.FREE && reserver != agent)
+			++conflicts;
+		else
+			reservations.reserveID(block, time, agent);
+	}
+
+	private static long key(int block, int time) {
+		return ((long) time << 32) | block;
+	}
+}
@@ -0,0 +1,221 @@
+package tools;
+import java.awt.Point;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/** Determines the shortest distance to a target location from EVERY other spot on the given grid, like SwarmPathFinder,
+ *  but spreads the work over several threads so that very large grids can be handled (the Delta-stepping algorithm).
+ *  Blocks are kept in buckets of distances delta wide rather than a priority queue. All the blocks in the nearest bucket
+ *  are expanded at once, in parallel, and a distance is only ever lowered with an atomic compare-and-set, so threads never
+ *  need to lock anything. Gives exactly the same distances as SwarmPathFinder. */
+public class DeltaSteppingPathFinder {
+
+	private final static int SPLIT_SIZE = 2048; //frontiers smaller than this are expanded on one thread
+	private final static int[] DX = { 0, 0, -1, 1, -1, 1, -1, 1 };
+	private final static int[] DY = { -1, 1, 0, 0, -1, -1, 1, 1 };
+	private Grid grid;
+	private ForkJoinPool pool;
+	private int delta;
+	private int xBlocks, yBlocks;
+	private int[] straightCost, diagonalCost; //shared by every thread, never written after construction
+	private AtomicIntegerArray distance;
+	private int[] seenIn; //the last inner round each block was put in the frontier, so it is expanded only once per round
+	private int[] settledIn; //the last bucket each block was settled in
+	private IntList[] buckets;
+	private int pending; //entries waiting in the buckets, including stale ones
+	private double timeTaken = 0;//in ms
+
+	/** Creates the pathfinder using every available processor and buckets as wide as two straight steps over the cheapest block.
+	 *
+	 * @param grid The grid to find distances on.
+	 */
+	public DeltaSteppingPathFinder(Grid grid) {
+		this(grid, Runtime.getRuntime().availableProcessors(), 0);
+	}
+
+	/** Creates the pathfinder.
+	 *
+	 * @param grid The grid to find distances on.
+	 * @param parallelism How many threads to expand blocks on.
+	 * @param delta The width of each bucket of distances, or 0 to pick one from the grid's costs. Narrow buckets give less wasted work, wide buckets give more to do in parallel.
+	 */
+	public DeltaSteppingPathFinder(Grid grid, int parallelism, int delta) {
+		this.grid = grid;
+		pool = new ForkJoinPool(parallelism);
+		xBlocks = grid.getXBlocks();
+		yBlocks = grid.getYBlocks();
+		straightCost = grid.stepCostsID(10);
+		diagonalCost = grid.stepCostsID(14);
+		int minCost = Integer.MAX_VALUE, maxCost = 1;
+		for (int i = 0; i < straightCost.length; ++i) {
+			if (straightCost[i] != Grid.UNREACHED) {
+				minCost = Math.min(minCost, grid.costID(i));
+				maxCost = Math.max(maxCost, grid.costID(i));
+			}
+		}
+		this.delta = delta > 0 ? delta : Math.max(1, 20*Math.min(minCost, maxCost));
+
+		//no step is longer than the heaviest diagonal, so only that many buckets ahead can ever be in use at once
+		buckets = new IntList[14*maxCost/this.delta + 2];
+		for (int i = 0; i < buckets.length; ++i)
+			buckets[i] = new IntList();
+		distance = new AtomicIntegerArray(grid.getTotalBlocks());
+		seenIn = new int[grid.getTotalBlocks()];
+		settledIn = new int[grid.getTotalBlocks()];
+	}
+
+	/** Finds the distance from start to every spot on the grid.
+	 *
+	 * @param start The point distances are measured from.
+	 * @return The distance to every spot, indexed [x][y], or -1 for spots which cannot be reached.
+	 */
+	public int[][] findDistsFrom(Point start) {
+		long startTime = System.nanoTime();
+		stepFrom(grid.pointToID(start));
+
+		int[][] fixedDist = new int[xBlocks][yBlocks];
+		for (int y = 0; y < yBlocks; ++y) {
+			int row = y * xBlocks;
+			for (int x = 0; x < xBlocks; ++x) {
+				int dist = distance.get(row + x);
+				fixedDist[x][y] = dist >= Grid.UNREACHED ? -1 : dist;
+			}
+		}
+		timeTaken = (System.nanoTime() - startTime)/1000000.0;
+		return fixedDist;
+	}
+
+	/** Returns how long it took to find the most recent distances.
+	 *
+	 * @return The time taken (in milliseconds).
+	 */
+	public double getLastTimeTaken() {
+		return timeTaken;
+	}
+
+	/**
+	 *
+	 * @return How many threads blocks are expanded on.
+	 */
+	public int getParallelism() {
+		return pool.getParallelism();
+	}
+
+	/** Stops the threads used by this pathfinder. It cannot be used afterwards. */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	private void stepFrom(int startID) {
+		for (int i = 0; i < seenIn.length; ++i) {
+			distance.set(i, Grid.UNREACHED);
+			seenIn[i] = -1;
+			settledIn[i] = -1;
+		}
+		for (IntList bucket : buckets)
+			bucket.clear();
+		pending = 0;
+
+		distance.set(startID, 0);
+		addToBucket(startID, 0);
+		int round = 0;
+		IntList settled = new IntList();
+
+		for (int at = 0; pending > 0; ++at) {
+			IntList bucket = buckets[at % buckets.length];
+			settled.clear();
+			//light steps can land back in this same bucket, so keep expanding it until it stays empty
+			while (!bucket.isEmpty()) {
+				IntList frontier = new IntList(bucket.size());
+				for (int i = 0; i < bucket.size(); ++i) {
+					int block = bucket.get(i);
+					if (distance.get(block) / delta == at && seenIn[block] != round) { //skip stale and repeated entries
+						seenIn[block] = round;
+						frontier.add(block);
+						if (settledIn[block] != at) {
+							settledIn[block] = at;
+							settled.add(block);
+						}
+					}
+				}
+				pending -= bucket.size();
+				bucket.clear();
+				++round;
+				addAllToBuckets(relax(frontier, true));
+			}
+			addAllToBuckets(relax(settled, false));
+		}
+	}
+
+	private IntList relax(IntList frontier, boolean light) {
+		RelaxTask task = new RelaxTask(frontier, 0, frontier.size(), light);
+		if (frontier.size() <= SPLIT_SIZE)
+			return task.compute();
+		return pool.invoke(task);
+	}
+
+	private void addAllToBuckets(IntList improved) {
+		for (int i = 0; i < improved.size(); ++i) {
+			int block = improved.get(i);
+			addToBucket(block, distance.get(block));
+		}
+	}
+
+	private void addToBucket(int block, int dist) {
+		buckets[(dist / delta) % buckets.length].add(block);
+		++pending;
+	}
+
+	//steps from every block in frontier[from, to), either the light steps no longer than delta or the heavy ones, returning the blocks whose distance went down
+	private class RelaxTask extends RecursiveTask<IntList> {
+		private static final long serialVersionUID = 1L;
+		private IntList frontier;
+		private int from, to;
+		private boolean light;
+
+		RelaxTask(IntList frontier, int from, int to, boolean light) {
+			this.frontier = frontier;
+			this.from = from;
+			this.to = to;
+			this.light = light;
+		}
+
+		@Override
+		protected IntList compute() {
+			if (to - from > SPLIT_SIZE) {
+				int middle = (from + to) >>> 1;
+				RelaxTask left = new RelaxTask(frontier, from, middle, light);
+				left.fork();
+				IntList improved = new RelaxTask(frontier, middle, to, light).compute();
+				improved.addAll(left.join());
+				return improved;
+			}
+
+			IntList improved = new IntList();
+			for (int i = from; i < to; ++i) {
+				int block = frontier.get(i);
+				int x = block % xBlocks, y = block / xBlocks;
+				int dist = distance.get(block);
+				for (int d = 0; d < 8; ++d) {
+					int nx = x + DX[d], ny = y + DY[d];
+					if (nx < 0 || nx >= xBlocks || ny < 0 || ny >= yBlocks)
+						continue;
+					int next = nx + ny * xBlocks;
+					int step = d < 4 ? straightCost[next] : diagonalCost[next];
+					if (step >= Grid.UNREACHED || (step <= delta) != light)
+						continue;
+					int newDist = dist + step;
+					int old;
+					while (newDist < (old = distance.get(next))) {
+						if (distance.compareAndSet(next, old, newDist)) {
+							improved.add(next);
+							break;
+						}
+					}
+				}
+			}
+			return improved;
+		}
+	}
+}
@@ -0,0 +1,22 @@
+package tools;
+
+/** Estimates the distance between two nodes of a WeightedGraph for GraphPathFinder's A* search. 
+ *  The estimate must never be more than the real distance, or the path found may not be the shortest. */
+public interface GraphHeuristic {
+
+	/** Estimates every distance as 0, which makes A* the same as Dijkstra's algorithm. */
+	public final static GraphHeuristic NONE = new GraphHeuristic() {
+		@Override
+		public int estimate(int from, int to) {
+			return 0;
+		}
+	};
+
+	/**
+	 * 
+	 * @param from The node the distance is measured from.
+	 * @param to The node the distance is measured to.
+	 * @return The estimated distance.
+	 */
+	public int estimate(int from, int to);
+}
@@ -0,0 +1,171 @@
+package tools;
+import java.util.Arrays;
+
+/** The A*, swarm and Floyd-Warshall searches of AStarPathFinder, SwarmPathFinder and WarshallPathFinder, for any WeightedGraph
+ *  rather than only a Grid. Nodes and paths are given as node numbers; a Grid converts them to and from points with
+ *  getNodeID and getNodePoint. */
+public class GraphPathFinder {
+
+	private WeightedGraph graph;
+	private GraphHeuristic heuristic;
+	private int[] distance;
+	private int[] parent;
+	private int[] seenIn; //the search in which each node's distance was last set
+	private int[] closedIn; //the search in which each node was last expanded
+	private int search = 0;
+	private int[] edgeTargets, edgeWeights;
+	private IntMinHeap open = new IntMinHeap(100);
+	private int lastPathCost = -1;
+	private double timeTaken = 0;//in ms
+
+	/** Creates the pathfinder with no heuristic, so that A* searches are the same as Dijkstra's algorithm.
+	 *
+	 * @param graph The graph to find paths on.
+	 */
+	public GraphPathFinder(WeightedGraph graph) {
+		this(graph, GraphHeuristic.NONE);
+	}
+
+	/** Creates the pathfinder using the given heuristic.
+	 *
+	 * @param graph The graph to find paths on.
+	 * @param heuristic Estimates the distance between nodes for A* searches, such as Grid.getDiagonalHeuristic().
+	 */
+	public GraphPathFinder(WeightedGraph graph, GraphHeuristic heuristic) {
+		this.graph = graph;
+		this.heuristic = heuristic;
+		distance = new int[graph.getNodeCount()];
+		parent = new int[graph.getNodeCount()];
+		seenIn = new int[graph.getNodeCount()];
+		closedIn = new int[graph.getNodeCount()];
+		edgeTargets = new int[graph.getMaxDegree()];
+		edgeWeights = new int[graph.getMaxDegree()];
+	}
+
+	/** Finds the shortest path from start to goal with an A* search.
+	 *
+	 * @param start The node the path starts at.
+	 * @param goal The node the path ends at.
+	 * @return The nodes along the path in order, starting with start and ending with goal, or null if there is no path.
+	 */
+	public int[] findPath(int start, int goal) {
+		long startTime = System.nanoTime();
+		search(start, goal);
+		lastPathCost = closedIn[goal] == search ? distance[goal] : -1;
+		if (lastPathCost == -1)
+			return null;
+
+		int length = 1;
+		for (int at = goal; at != start; at = parent[at])
+			++length;
+		int[] path = new int[length];
+		int at = goal;
+		for (int i = length - 1; i >= 0; --i) {
+			path[i] = at;
+			at = parent[at];
+		}
+		timeTaken = (System.nanoTime() - startTime)/1000000.0;
+		return path;
+	}
+
+	/**
+	 *
+	 * @return The total weight of the path found by the most recent call to findPath, or -1 if it found no path.
+	 */
+	public int getLastPathCost() {
+		return lastPathCost;
+	}
+
+	/** Finds the distance from start to every node, as SwarmPathFinder does for a grid.
+	 *
+	 * @param start The node distances are measured from.
+	 * @return The distance to every node, or -1 for nodes which cannot be reached.
+	 */
+	public int[] findDistsFrom(int start) {
+		long startTime = System.nanoTime();
+		search(start, -1);
+		int[] dists = new int[graph.getNodeCount()];
+		for (int node = 0; node < dists.length; ++node)
+			dists[node] = closedIn[node] == search ? distance[node] : -1;
+		timeTaken = (System.nanoTime() - startTime)/1000000.0;
+		return dists;
+	}
+
+	/** Finds the distance from every node to every other node, as WarshallPathFinder does for a grid. This takes O(n^3) time and O(n^2) memory for n nodes, so it is only suitable for small graphs.
+	 *
+	 * @return The distances, where [a][b] is the distance from a to b, or -1 if b cannot be reached from a.
+	 */
+	public int[][] findAllDistances() {
+		long startTime = System.nanoTime();
+		int n = graph.getNodeCount();
+		int[][] dist = new int[n][n];
+		for (int i = 0; i < n; ++i) {
+			Arrays.fill(dist[i], -1);
+			dist[i][i] = 0;
+			int count = graph.getEdges(i, edgeTargets, edgeWeights);
+			for (int e = 0; e < count; ++e) {
+				int j = edgeTargets[e];
+				if (dist[i][j] == -1 || edgeWeights[e] < dist[i][j])
+					dist[i][j] = edgeWeights[e];
+			}
+		}
+
+		for (int k = 0; k < n; ++k) {
+			int[] viaK = dist[k];
+			for (int i = 0; i < n; ++i) {
+				int toK = dist[i][k];
+				if (toK == -1)
+					continue;
+				int[] fromI = dist[i];
+				for (int j = 0; j < n; ++j)
+					if (viaK[j] != -1 && (fromI[j] == -1 || toK + viaK[j] < fromI[j]))
+						fromI[j] = toK + viaK[j];
+			}
+		}
+		timeTaken = (System.nanoTime() - startTime)/1000000.0;
+		return dist;
+	}
+
+	/** Returns how long the most recent search took.
+	 *
+	 * @return The time taken (in milliseconds).
+	 */
+	public double getLastTimeTaken() {
+		return timeTaken;
+	}
+
+	//expands nodes nearest first until goal is expanded, or every reachable node is if goal is -1
+	private void search(int start, int goal) {
+		if (++search == Integer.MAX_VALUE) { //wrap around before old searches can be mistaken for this one
+			Arrays.fill(seenIn, 0);
+			Arrays.fill(closedIn, 0);
+			search = 1;
+		}
+		open.clear();
+		distance[start] = 0;
+		parent[start] = start;
+		seenIn[start] = search;
+		open.add(start, goal == -1 ? 0 : heuristic.estimate(start, goal));
+
+		while (!open.isEmpty()) {
+			int node = open.poll();
+			if (closedIn[node] == search)
+				continue; //a stale entry, this node was already reached more cheaply
+			closedIn[node] = search;
+			if (node == goal)
+				return;
+
+			int count = graph.getEdges(node, edgeTargets, edgeWeights);
+			for (int e = 0; e < count; ++e) {
+				int to = edgeTargets[e];
+				int newDist = distance[node] + edgeWeights[e];
+				if (closedIn[to] != search && (seenIn[to] != search || newDist < distance[to])) {
+					seenIn[to] = search;
+					distance[to] = newDist;
+					parent[to] = node;
+					open.add(to, goal == -1 ? newDist : newDist + heuristic.estimate(to, goal));
+				}
+			}
+		}
+	}
+}
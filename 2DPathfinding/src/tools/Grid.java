@@ -3,9 +3,11 @@ import java.awt.Point;
 import java.io.*;
 import java.net.URL;
 import java.util.HashMap;
+import java.util.Random;
 
-/** A representation of a 2D grid, which can be used in many applications and have attached PathEdge operations applied to it. */
-public class Grid {
+/** A representation of a 2D grid, which can be used in many applications and have attached PathEdge operations applied to it. 
+ *  As a WeightedGraph, each block is a node with an edge to each of the up to 8 blocks around it which can be walked onto. */
+public class Grid implements WeightedGraph {
 
 	/*
 	 * Grids have 2 representations: 1. The straightforward 2D representations
@@ -17,11 +19,15 @@ public class Grid {
 	private int[][] blockAt;
 	private int[][] cost2D; // a cost profile in 2D ie cost2D[0][0] = 5 means block
 					// (0,0) takes 5 time steps to traverse
-	protected int[] costID; // a cost profile in 1D
+	private final static int CHUNK_BITS = 12; // the 1D cost profile is split into chunks of 4096 blocks
+	private final static int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+	private int[][] costChunks; // a cost profile in 1D, read through costID(id). Versions of a grid share every chunk they do not change
 	private HashMap<Integer, Integer> costMap; // maps block values to their cost to
 										// traverse
 	private int numDiffBlocks; // the number of different types of blocks
 	private int xBlocks, yBlocks;
+	private long version = 0; // grids never change, an edited grid is a new version of its base grid
+	protected final static int UNREACHED = Integer.MAX_VALUE / 4; // large enough to never be a distance, small enough to add a step to
 
 	/** Construct a default 30 by 30 grid */
 	public Grid() {
@@ -66,7 +72,8 @@ public class Grid {
 			4, makeDefaultCostMap());
 	}
 
-	/** Constructs a grid given the base components needed.
+	/** Constructs a grid given the base components needed. The blocks and costs are copied, so changing them afterwards
+	 *  does not change the grid.
 	 * 
 	 * @param blockAt A 2D array of integers, representing block IDs.
 	 * @param numDiffBlocks The number of different block IDs
@@ -75,25 +82,93 @@ public class Grid {
 	public Grid(int[][] blockAt, int numDiffBlocks,
 			HashMap<Integer, Integer> costMap) {
 
-		this.costMap = costMap;
+		this.costMap = new HashMap<Integer, Integer>(costMap);
 
 		xBlocks = blockAt.length;
 		yBlocks = blockAt[0].length;
 		this.numDiffBlocks = numDiffBlocks;
 
-		this.blockAt = blockAt;
+		this.blockAt = new int[xBlocks][];
+		for (int x = 0; x < xBlocks; ++x)
+			this.blockAt[x] = blockAt[x].clone();
 		cost2D = new int[xBlocks][yBlocks];
-		costID = new int[xBlocks * yBlocks];
+		int total = xBlocks * yBlocks;
+		costChunks = new int[(total + CHUNK_MASK) >>> CHUNK_BITS][];
+		for (int c = 0; c < costChunks.length; ++c)
+			costChunks[c] = new int[Math.min(CHUNK_MASK + 1, total - (c << CHUNK_BITS))];
 
 		for (int x = 0; x < xBlocks; ++x) {
 			for (int y = 0; y < yBlocks; ++y) {
 				cost2D[x][y] = costMap.get(blockAt[x][y]);
-				costID[x + y * xBlocks] = costMap.get(blockAt[x][y]);
+				int id = x + y * xBlocks;
+				costChunks[id >>> CHUNK_BITS][id & CHUNK_MASK] = costMap.get(blockAt[x][y]);
 			}
 		}
 
 	}
 
+	/** Makes a grid of mostly open ground, with some walls and rough terrain, using the default cost values. 
+	 *  About 15% of blocks are walls, 10% cost 3 and 3% cost 10, which makes a good stand-in for a real map when timing pathfinders.
+	 * 
+	 * @param xBlocks The x dimension of the grid.
+	 * @param yBlocks The y dimension of the grid.
+	 * @param random Picks the blocks, so the same seed always gives the same grid.
+	 * @return The grid.
+	 */
+	public static Grid randomGrid(int xBlocks, int yBlocks, Random random) {
+		int[][] blocks = new int[xBlocks][yBlocks];
+		for (int x = 0; x < xBlocks; ++x) {
+			for (int y = 0; y < yBlocks; ++y) {
+				int roll = random.nextInt(100);
+				blocks[x][y] = roll < 15 ? 1 : (roll < 25 ? 2 : (roll < 28 ? 3 : 0));
+			}
+		}
+		return new Grid(blocks, 4, makeDefaultCostMap());
+	}
+
+	/** Constructs the next version of a grid with some blocks changed. Columns of blocks and chunks of costs which are not 
+	 *  changed are shared with the base grid rather than copied, so a small edit costs only a copy of the few arrays it touches
+	 *  however big the grid is, and the base grid can keep being used while the new version is made.
+	 * 
+	 * @param base The grid being edited.
+	 * @param xs The x coordinate of each changed block.
+	 * @param ys The y coordinate of each changed block.
+	 * @param blocks The new block ID of each changed block.
+	 * @param count How many blocks are changed.
+	 */
+	protected Grid(Grid base, int[] xs, int[] ys, int[] blocks, int count) {
+		costMap = base.costMap;
+		numDiffBlocks = base.numDiffBlocks;
+		xBlocks = base.xBlocks;
+		yBlocks = base.yBlocks;
+		version = base.version + 1;
+
+		blockAt = base.blockAt.clone();
+		cost2D = base.cost2D.clone();
+		costChunks = base.costChunks.clone();
+		boolean[] copied = new boolean[xBlocks];
+		boolean[] chunkCopied = new boolean[costChunks.length];
+		for (int i = 0; i < count; ++i) {
+			int x = xs[i], y = ys[i];
+			Integer cost = costMap.get(blocks[i]);
+			if (cost == null)
+				throw new IllegalArgumentException("Block ID " + blocks[i] + " has no cost");
+			if (!copied[x]) {
+				blockAt[x] = blockAt[x].clone();
+				cost2D[x] = cost2D[x].clone();
+				copied[x] = true;
+			}
+			blockAt[x][y] = blocks[i];
+			cost2D[x][y] = cost;
+			int chunk = (x + y * xBlocks) >>> CHUNK_BITS;
+			if (!chunkCopied[chunk]) {
+				costChunks[chunk] = costChunks[chunk].clone();
+				chunkCopied[chunk] = true;
+			}
+			costChunks[chunk][(x + y * xBlocks) & CHUNK_MASK] = cost;
+		}
+	}
+
 	private static HashMap<Integer, Integer> makeDefaultCostMap() {
 		HashMap<Integer, Integer> defaultCostMap = new HashMap<Integer, Integer>();
 		defaultCostMap.put(0, 1); // a block which requires 1 time step to
@@ -156,16 +231,12 @@ public class Grid {
 		return idAt - 1;
 	}
 
-	protected int[] getCostMapID() {
-		return costID;
-	}
-
 	public int getTotalBlocks() {
 		return xBlocks * yBlocks;
 	}
 
 	protected boolean walkableID(int idAt) {
-		return idAt > 0 && idAt < xBlocks * yBlocks && costID[idAt] != -1;
+		return idAt > 0 && idAt < xBlocks * yBlocks && costID(idAt) != -1;
 	}
 
 	protected boolean canWalkID(int current, int to) {// determines if a one step jump can be made from one block to another.
@@ -211,7 +282,120 @@ public class Grid {
 		return blockAt[x][y];
 	}
 	
+	/**
+	 * 
+	 * @return The version of the grid, which is 0 for a new grid and goes up by one with every edit made through a VersionedGrid.
+	 */
+	public long getVersion(){
+		return version;
+	}
+	
+	/** 
+	 * 
+	 * @param x The x-coordinate of the block.
+	 * @param y The y-coordinate of the block.
+	 * @return True if paths can go through the block.
+	 */
+	public boolean isWalkable(int x, int y){
+		return x >= 0 && x < xBlocks && walkableID(x + y*xBlocks);
+	}
+	
+	/** Gives the cost of a single step between neighbouring blocks, counted the same way as by the pathfinders.
+	 * 
+	 * @param from The block the step starts on.
+	 * @param to The block stepped onto.
+	 * @return The cost of the step, or -1 if it cannot be taken.
+	 */
+	public int getStepCost(Point from, Point to){
+		int xDist = Math.abs(to.x - from.x), yDist = Math.abs(to.y - from.y);
+		if(xDist > 1 || yDist > 1 || xDist + yDist == 0 || !canWalkID(pointToID(from), pointToID(to)))
+			return -1;
+		return (xDist + yDist == 2 ? 14 : 10)*costID(pointToID(to));
+	}
+	
 	protected int costID(int id){
-		return costID[id];
+		return costChunks[id >>> CHUNK_BITS][id & CHUNK_MASK];
+	}
+	
+	// the cost of stepping onto each block, costFix times its cost, or UNREACHED if it cannot be walked onto. 
+	// Finders which look up a block's cost in their innermost loop use these instead of checking walkableID every time.
+	protected int[] stepCostsID(int costFix){
+		int[] stepCosts = new int[getTotalBlocks()];
+		for(int i=0;i<stepCosts.length;++i)
+			stepCosts[i] = walkableID(i) ? costFix*costID(i) : UNREACHED;
+		return stepCosts;
+	}
+	
+	/** 
+	 * 
+	 * @param at A point on the grid.
+	 * @return The node of the point when the grid is used as a WeightedGraph.
+	 */
+	public int getNodeID(Point at){
+		return pointToID(at);
+	}
+	
+	/** 
+	 * 
+	 * @param node A node of the grid used as a WeightedGraph.
+	 * @return The point of the node on the grid.
+	 */
+	public Point getNodePoint(int node){
+		return idToPoint(node);
+	}
+	
+	@Override
+	public int getNodeCount(){
+		return getTotalBlocks();
+	}
+	
+	@Override
+	public int getMaxDegree(){
+		return 8;
+	}
+	
+	/** Writes out the steps which can be taken from a block, straight from the grid's costs without building any graph. 
+	 *  A step costs 10 times the cost of the block stepped onto, or 14 times diagonally, as with the other pathfinders. */
+	@Override
+	public int getEdges(int node, int[] targets, int[] weights){
+		int count = 0;
+		count = addEdge(node, IDAbove(node), 10, count, targets, weights);
+		count = addEdge(node, IDBelow(node), 10, count, targets, weights);
+		count = addEdge(node, IDLeft(node), 10, count, targets, weights);
+		count = addEdge(node, IDRight(node), 10, count, targets, weights);
+		count = addEdge(node, IDAbove(IDLeft(node)), 14, count, targets, weights);
+		count = addEdge(node, IDAbove(IDRight(node)), 14, count, targets, weights);
+		count = addEdge(node, IDBelow(IDLeft(node)), 14, count, targets, weights);
+		count = addEdge(node, IDBelow(IDRight(node)), 14, count, targets, weights);
+		return count;
+	}
+	
+	private int addEdge(int from, int to, int costFix, int count, int[] targets, int[] weights){
+		if(!canWalkID(from, to))
+			return count;
+		targets[count] = to;
+		weights[count] = costFix*costID(to);
+		return count + 1;
+	}
+	
+	/** Gives the diagonal distance heuristic for A* searches of the grid as a WeightedGraph.
+	 * 
+	 * @return A heuristic which never overestimates the distance between two blocks.
+	 */
+	public GraphHeuristic getDiagonalHeuristic(){
+		int minCost = Integer.MAX_VALUE;
+		for(int[] chunk : costChunks)
+			for(int cost : chunk)
+				if(cost != -1)
+					minCost = Math.min(minCost, cost);
+		final int scale = minCost == Integer.MAX_VALUE ? 0 : minCost;
+		return new GraphHeuristic(){
+			@Override
+			public int estimate(int from, int to){
+				int xDist = Math.abs(from%xBlocks - to%xBlocks);
+				int yDist = Math.abs(from/xBlocks - to/xBlocks);
+				return scale*(xDist > yDist ? 14*yDist + 10*(xDist-yDist) : 14*xDist + 10*(yDist-xDist));
+			}
+		};
 	}
 }
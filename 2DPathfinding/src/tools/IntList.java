@@ -0,0 +1,57 @@
+package tools;
+import java.util.Arrays;
+
+/** A growable list of ints, used instead of an ArrayList<Integer> to avoid boxing. */
+class IntList {
+	private int[] items;
+	private int size;
+
+	IntList() {
+		this(16);
+	}
+
+	IntList(int capacity) {
+		items = new int[Math.max(capacity, 2)];
+	}
+
+	void add(int item) {
+		if (size == items.length)
+			items = Arrays.copyOf(items, size * 2);
+		items[size++] = item;
+	}
+
+	void addAll(IntList other) {
+		if (size + other.size > items.length)
+			items = Arrays.copyOf(items, Math.max(size + other.size, size * 2));
+		System.arraycopy(other.items, 0, items, size, other.size);
+		size += other.size;
+	}
+
+	int get(int index) {
+		return items[index];
+	}
+
+	void set(int index, int item) {
+		items[index] = item;
+	}
+
+	int removeLast() {
+		return items[--size];
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	void clear() {
+		size = 0;
+	}
+
+	int[] toArray() {
+		return Arrays.copyOf(items, size);
+	}
+}
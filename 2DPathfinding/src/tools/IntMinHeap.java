@@ -0,0 +1,73 @@
+package tools;
+import java.util.Arrays;
+
+/** A binary min-heap of block IDs keyed by int priorities, used instead of a PriorityQueue<Integer> to avoid boxing.
+ *  Entries are never decreased in place; callers push a block again with its better key and skip stale entries when polled. */
+class IntMinHeap {
+	private int[] ids;
+	private int[] keys;
+	private int size;
+
+	IntMinHeap(int capacity) {
+		ids = new int[Math.max(capacity, 2)];
+		keys = new int[ids.length];
+	}
+
+	void add(int id, int key) {
+		if (size == ids.length) {
+			ids = Arrays.copyOf(ids, size * 2);
+			keys = Arrays.copyOf(keys, size * 2);
+		}
+		int at = size++;
+		while (at > 0) {
+			int up = (at - 1) >>> 1;
+			if (keys[up] <= key)
+				break;
+			ids[at] = ids[up];
+			keys[at] = keys[up];
+			at = up;
+		}
+		ids[at] = id;
+		keys[at] = key;
+	}
+
+	/** Removes the entry with the smallest key and returns its ID. */
+	int poll() {
+		int top = ids[0];
+		--size;
+		int id = ids[size], key = keys[size];
+		int at = 0;
+		while (true) {
+			int child = 2 * at + 1;
+			if (child >= size)
+				break;
+			if (child + 1 < size && keys[child + 1] < keys[child])
+				++child;
+			if (keys[child] >= key)
+				break;
+			ids[at] = ids[child];
+			keys[at] = keys[child];
+			at = child;
+		}
+		ids[at] = id;
+		keys[at] = key;
+		return top;
+	}
+
+	/** @return The smallest key in the heap, only valid when the heap is not empty. */
+	int peekKey() {
+		return keys[0];
+	}
+
+	boolean isEmpty() {
+		return size == 0;
+	}
+
+	int size() {
+		return size;
+	}
+
+	void clear() {
+		size = 0;
+	}
+}
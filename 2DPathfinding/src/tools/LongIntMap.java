@@ -0,0 +1,80 @@
+package tools;
+import java.util.Arrays;
+
+/** An open addressing hash map from long keys to int values, with no per-entry objects.
+ *  Clearing is O(1): every slot carries the generation it was written in, and clear() simply starts a new generation. */
+class LongIntMap {
+	private long[] keys;
+	private int[] values;
+	private int[] stamps;
+	private int stamp = 1;
+	private int size;
+	private int mask;
+
+	LongIntMap(int expected) {
+		int capacity = 16;
+		while (capacity < expected * 2)
+			capacity <<= 1;
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new int[capacity];
+		stamps = new int[capacity];
+		mask = capacity - 1;
+	}
+
+	private int slot(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mask;
+	}
+
+	/** @return The value stored for key, or missing if there is none. */
+	int get(long key, int missing) {
+		for (int i = slot(key);; i = (i + 1) & mask) {
+			if (stamps[i] != stamp)
+				return missing;
+			if (keys[i] == key)
+				return values[i];
+		}
+	}
+
+	void put(long key, int value) {
+		if (2 * (size + 1) > keys.length)
+			grow();
+		int i = slot(key);
+		while (stamps[i] == stamp && keys[i] != key)
+			i = (i + 1) & mask;
+		if (stamps[i] != stamp) {
+			stamps[i] = stamp;
+			keys[i] = key;
+			++size;
+		}
+		values[i] = value;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		int[] oldValues = values, oldStamps = stamps;
+		int oldStamp = stamp;
+		allocate(oldKeys.length * 2);
+		stamp = 1;
+		size = 0;
+		for (int i = 0; i < oldKeys.length; ++i)
+			if (oldStamps[i] == oldStamp)
+				put(oldKeys[i], oldValues[i]);
+	}
+
+	void clear() {
+		size = 0;
+		if (++stamp == Integer.MAX_VALUE) { //wrap around before old stamps can be mistaken for live ones
+			Arrays.fill(stamps, 0);
+			stamp = 1;
+		}
+	}
+
+	int size() {
+		return size;
+	}
+}
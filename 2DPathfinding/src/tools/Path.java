@@ -3,7 +3,9 @@ import java.awt.Point;
 import java.awt.geom.GeneralPath;
 import java.awt.geom.Line2D;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
+import java.util.List;
 
 /** A simple object which records steps taken across a grid */
 public class Path {
@@ -45,6 +47,14 @@ public class Path {
 		return steps.get(steps.size()-1);
 	}
 	
+	/**
+	 * 
+	 * @return Every point in the Path, in the order they were added.
+	 */
+	public List<Point> getSteps(){
+		return Collections.unmodifiableList(steps);
+	}
+	
 	
 	private void genGPath(){
 		generalPath = new GeneralPath(GeneralPath.WIND_EVEN_ODD, steps.size());
@@ -0,0 +1,123 @@
+package tools;
+import java.awt.Point;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/** A path which has been asked of a PathScheduler and will be found later. The path is null if there is none.
+ *  Identical requests share one search, but each requester gets its own PathRequest, so cancelling one only stops the
+ *  search once every requester sharing it has cancelled too. */
+public class PathRequest implements Future<Path> {
+
+	private PathScheduler scheduler;
+	protected PathSearch search;
+	//guarded by the search's lock, set once this requester cancels or is replaced by a newer request from its agent
+	protected boolean isReleased = false;
+	protected long releasedAt = 0;
+
+	protected PathRequest(PathScheduler scheduler, PathSearch search) {
+		this.scheduler = scheduler;
+		this.search = search;
+	}
+
+	/**
+	 *
+	 * @return The starting point of the requested path.
+	 */
+	public Point getStart() {
+		return search.start;
+	}
+
+	/**
+	 *
+	 * @return The destination point of the requested path.
+	 */
+	public Point getEnd() {
+		return search.end;
+	}
+
+	/** Returns how long was spent searching for this path, not counting time spent waiting in the queue or between slices.
+	 *
+	 * @return The time taken (in milliseconds).
+	 */
+	public double getTimeTaken() {
+		synchronized (search) {
+			return search.timeTaken;
+		}
+	}
+
+	/** Returns when the request finished, which together with when it was made gives how long the requester waited in total.
+	 *
+	 * @return When the request was completed, cancelled, expired or failed, in System.nanoTime() terms, or 0 if it has not finished.
+	 */
+	public long getFinishTime() {
+		synchronized (search) {
+			return isReleased ? releasedAt : search.finishedAt;
+		}
+	}
+
+	/**
+	 *
+	 * @return True if the request was dropped because its deadline passed before its path was found.
+	 */
+	public boolean isExpired() {
+		synchronized (search) {
+			return !isReleased && search.state == PathSearch.EXPIRED;
+		}
+	}
+
+	/** Cancels this request. The search it shares with identical requests goes on until all of them have been cancelled. */
+	@Override
+	public boolean cancel(boolean mayInterruptIfRunning) {
+		return scheduler.release(this);
+	}
+
+	@Override
+	public boolean isCancelled() {
+		synchronized (search) {
+			return isReleased || search.state == PathSearch.CANCELLED || search.state == PathSearch.EXPIRED;
+		}
+	}
+
+	@Override
+	public boolean isDone() {
+		synchronized (search) {
+			return isReleased || search.state >= PathSearch.DONE;
+		}
+	}
+
+	@Override
+	public Path get() throws InterruptedException, ExecutionException {
+		synchronized (search) {
+			while (!isReleased && search.state < PathSearch.DONE)
+				search.wait();
+			return result();
+		}
+	}
+
+	@Override
+	public Path get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+		long waitUntil = System.nanoTime() + unit.toNanos(timeout);
+		synchronized (search) {
+			while (!isReleased && search.state < PathSearch.DONE) {
+				long left = waitUntil - System.nanoTime();
+				if (left <= 0)
+					throw new TimeoutException();
+				TimeUnit.NANOSECONDS.timedWait(search, left);
+			}
+			return result();
+		}
+	}
+
+	private Path result() throws ExecutionException {
+		if (isReleased || search.state == PathSearch.CANCELLED)
+			throw new CancellationException();
+		if (search.state == PathSearch.EXPIRED)
+			throw new CancellationException("The deadline passed before the path was found");
+		if (search.state == PathSearch.FAILED)
+			throw new ExecutionException(search.failure);
+		return search.path;
+	}
+}
@@ -0,0 +1,342 @@
+package tools;
+import java.awt.Point;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+/** Finds paths asynchronously, so that a long search never holds up the caller.
+ *  Requests are queued by priority and deadline, identical requests which are still waiting share one search, and a new
+ *  request from an agent replaces that agent's previous one. A search which throws fails only its own requests. Searches are cut into slices of a fixed number of expansions,
+ *  so they can either be run a little at a time on the game loop by calling update every tick, or on a background thread
+ *  by calling start. Only one of the two should be used. */
+public class PathScheduler {
+
+	public final static int NO_AGENT = -1;
+	private Grid grid;
+	private AStarPathFinder finder;
+	private int sliceExpansions;
+	private PriorityQueue<PathSearch> queue = new PriorityQueue<PathSearch>(100, new searchComparator());
+	private HashMap<Long, PathSearch> inFlight = new HashMap<Long, PathSearch>(); //by start and end
+	private HashMap<Integer, PathRequest> agentRequests = new HashMap<Integer, PathRequest>();
+	private PathSearch active;
+	private long activeKey;
+	private long nextOrder = 0;
+	private Thread worker;
+	private volatile boolean isRunning = false;
+
+	//backpressure metrics
+	private long submitted, completed, expired, cancelled, failed, deduplicated, coalesced;
+	private int maxQueueDepth;
+
+	/** Creates the scheduler, searching 500 blocks per slice.
+	 *
+	 * @param grid The grid to find paths on.
+	 */
+	public PathScheduler(Grid grid) {
+		this(grid, 500);
+	}
+
+	/** Creates the scheduler.
+	 *
+	 * @param grid The grid to find paths on.
+	 * @param sliceExpansions How many blocks a search may expand before the scheduler checks its time budget again.
+	 */
+	public PathScheduler(Grid grid, int sliceExpansions) {
+		this.grid = grid;
+		this.sliceExpansions = sliceExpansions;
+		finder = new AStarPathFinder(grid);
+	}
+
+	/** Asks for the shortest path from start to end, with a priority of 0 and no deadline.
+	 *
+	 * @param start The starting point, as a 2D coordinate on the grid.
+	 * @param end The destination point, as a 2D coordinate on the grid.
+	 * @return The request, which will hold the path once it is found.
+	 */
+	public PathRequest request(Point start, Point end) {
+		return request(NO_AGENT, start, end, 0, 0);
+	}
+
+	/** Asks for the shortest path from start to end.
+	 *
+	 * @param agent The agent asking for the path, whose previous request is cancelled if it has not finished. Use NO_AGENT for requests which should not replace each other.
+	 * @param start The starting point, as a 2D coordinate on the grid.
+	 * @param end The destination point, as a 2D coordinate on the grid.
+	 * @param priority Requests with a higher priority are searched first.
+	 * @param timeout How many milliseconds the path may take before the request expires, or 0 for no deadline.
+	 * @return The request, which will hold the path once it is found. Identical requests which are still waiting share one search.
+	 * @throws IllegalArgumentException If start or end is not on the grid.
+	 */
+	public synchronized PathRequest request(int agent, Point start, Point end, int priority, long timeout) {
+		if (!isOnGrid(start) || !isOnGrid(end))
+			throw new IllegalArgumentException("The path from " + start + " to " + end + " leaves the grid");
+		++submitted;
+		long deadline = System.nanoTime() + timeout * 1000000;
+		boolean hasDeadline = timeout > 0;
+		long key = ((long) grid.pointToID(start) << 32) | grid.pointToID(end);
+
+		PathSearch search = inFlight.get(key);
+		if (search != null && !search.isFinished()) {
+			++deduplicated;
+			boolean isLater = search.hasDeadline && (!hasDeadline || deadline - search.deadline > 0);
+			if (priority > search.priority || isLater) {
+				//the shared search has to satisfy its most demanding and its most patient requester
+				boolean isQueued = queue.remove(search);
+				search.priority = Math.max(priority, search.priority);
+				if (isLater) {
+					search.deadline = deadline;
+					search.hasDeadline = hasDeadline;
+				}
+				if (isQueued)
+					queue.add(search);
+			}
+		}
+		else {
+			search = new PathSearch(new Point(start), new Point(end), priority, deadline, hasDeadline, nextOrder++);
+			inFlight.put(key, search);
+			queue.add(search);
+			maxQueueDepth = Math.max(maxQueueDepth, queue.size());
+		}
+		++search.holders;
+		PathRequest request = new PathRequest(this, search);
+
+		if (agent != NO_AGENT) {
+			PathRequest previous = agentRequests.put(agent, request);
+			if (previous != null && !previous.isDone()) {
+				++coalesced;
+				release(previous);
+			}
+		}
+		notifyAll();
+		return request;
+	}
+
+	/** Searches for queued paths until the time budget runs out, finishing the current slice first.
+	 *
+	 * @param budgetNanos How long to search for, in nanoseconds.
+	 * @return How many paths were found.
+	 */
+	public int update(long budgetNanos) {
+		long stopAt = System.nanoTime() + budgetNanos;
+		int found = 0;
+		do {
+			if (active == null && !startNextRequest())
+				break;
+			if (active.isFinished()) { //cancelled by its last requester
+				finishActive();
+				continue;
+			}
+			if (isActivePastDeadline()) {
+				active.expire();
+				finishActive();
+				continue;
+			}
+
+			long sliceStart = System.nanoTime();
+			boolean isFinished;
+			try {
+				isFinished = finder.searchStep(sliceExpansions);
+			} catch (RuntimeException e) {
+				active.addTimeTaken(System.nanoTime() - sliceStart);
+				active.fail(e); //only this search is lost, the scheduler carries on with the rest of the queue
+				finishActive();
+				continue;
+			}
+			active.addTimeTaken(System.nanoTime() - sliceStart);
+			if (isFinished) {
+				active.complete(finder.getFoundPath());
+				finishActive();
+				++found;
+			}
+		} while (System.nanoTime() < stopAt);
+		return found;
+	}
+
+	/** Starts a background thread which searches for paths as soon as they are requested. */
+	public synchronized void start() {
+		if (isRunning)
+			return;
+		isRunning = true;
+		worker = new Thread(new Runnable() {
+			public void run() {
+				workerLoop();
+			}
+		}, "PathScheduler");
+		worker.setDaemon(true);
+		worker.start();
+	}
+
+	/** Stops the background thread started by start. Requests which have not finished stay queued. */
+	public synchronized void stop() {
+		isRunning = false;
+		notifyAll();
+	}
+
+	private void workerLoop() {
+		while (isRunning) {
+			synchronized (this) {
+				while (isRunning && active == null && queue.isEmpty()) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						return;
+					}
+				}
+			}
+			update(1000000);
+		}
+	}
+
+	private synchronized boolean startNextRequest() {
+		while (!queue.isEmpty()) {
+			PathSearch next = queue.poll();
+			long key = ((long) grid.pointToID(next.start) << 32) | grid.pointToID(next.end);
+			if (next.isPastDeadline(System.nanoTime())) {
+				next.expire();
+				++expired;
+			}
+			else if (!next.markRunning())
+				++cancelled;
+			else {
+				try {
+					finder.beginSearch(next.start, next.end);
+					active = next;
+					activeKey = key;
+					return true;
+				} catch (RuntimeException e) {
+					next.fail(e);
+					++failed;
+				}
+			}
+			if (inFlight.get(key) == next) //a cancelled search may already have been replaced by a new identical one
+				inFlight.remove(key);
+		}
+		return false;
+	}
+
+	private boolean isOnGrid(Point point) {
+		return point.x >= 0 && point.x < grid.getXBlocks() && point.y >= 0 && point.y < grid.getYBlocks();
+	}
+
+	//a later identical request can push back the deadline of the active one, so it is only read under the lock
+	private synchronized boolean isActivePastDeadline() {
+		return active.isPastDeadline(System.nanoTime());
+	}
+
+	private synchronized void finishActive() {
+		synchronized (active) {
+			if (active.state == PathSearch.DONE)
+				++completed;
+			else if (active.state == PathSearch.EXPIRED)
+				++expired;
+			else if (active.state == PathSearch.FAILED)
+				++failed;
+			else
+				++cancelled;
+		}
+		if (inFlight.get(activeKey) == active)
+			inFlight.remove(activeKey);
+		active = null;
+	}
+
+	//drops one requester of a search, cancelling the search once nobody is waiting for it anymore
+	protected synchronized boolean release(PathRequest request) {
+		PathSearch search = request.search;
+		synchronized (search) {
+			if (request.isReleased || search.state >= PathSearch.DONE)
+				return false;
+			request.isReleased = true;
+			request.releasedAt = System.nanoTime();
+			search.notifyAll(); //wakes this requester's get, the search itself may go on for the others
+			if (--search.holders == 0)
+				search.cancel();
+		}
+		return true;
+	}
+
+	/**
+	 *
+	 * @return How many requests are waiting to be searched, not counting the one being searched.
+	 */
+	public synchronized int getQueueDepth() {
+		return queue.size();
+	}
+
+	/**
+	 *
+	 * @return The most requests which have ever been waiting at once.
+	 */
+	public synchronized int getMaxQueueDepth() {
+		return maxQueueDepth;
+	}
+
+	/**
+	 *
+	 * @return How many requests have been made, including ones which were deduplicated.
+	 */
+	public synchronized long getSubmittedCount() {
+		return submitted;
+	}
+
+	/**
+	 *
+	 * @return How many searches have finished.
+	 */
+	public synchronized long getCompletedCount() {
+		return completed;
+	}
+
+	/**
+	 *
+	 * @return How many requests were dropped because their deadline passed.
+	 */
+	public synchronized long getExpiredCount() {
+		return expired;
+	}
+
+	/**
+	 *
+	 * @return How many requests were dropped because they were cancelled or replaced by a newer request from the same agent.
+	 */
+	public synchronized long getCancelledCount() {
+		return cancelled;
+	}
+
+	/**
+	 *
+	 * @return How many searches failed because the path finder threw an exception.
+	 */
+	public synchronized long getFailedCount() {
+		return failed;
+	}
+
+	/**
+	 *
+	 * @return How many requests shared an identical request's search instead of starting their own.
+	 */
+	public synchronized long getDeduplicatedCount() {
+		return deduplicated;
+	}
+
+	/**
+	 *
+	 * @return How many requests were replaced by a newer request from the same agent.
+	 */
+	public synchronized long getCoalescedCount() {
+		return coalesced;
+	}
+
+	private class searchComparator implements Comparator<PathSearch> {
+		@Override
+		public int compare(PathSearch r1, PathSearch r2) {
+			if (r1.priority != r2.priority)
+				return r1.priority > r2.priority ? -1 : 1;
+			else if (r1.hasDeadline != r2.hasDeadline)
+				return r1.hasDeadline ? -1 : 1;
+			else if (r1.hasDeadline && r1.deadline != r2.deadline)
+				return r1.deadline - r2.deadline < 0 ? -1 : 1;
+			else
+				return r1.order < r2.order ? -1 : (r1.order == r2.order ? 0 : 1);
+		}
+	}
+}
@@ -0,0 +1,83 @@
+package tools;
+import java.awt.Point;
+
+/** One search queued in a PathScheduler, shared by every PathRequest asking for the same path. */
+class PathSearch {
+
+	final static int QUEUED = 0;
+	final static int RUNNING = 1;
+	final static int DONE = 2;
+	final static int CANCELLED = 3;
+	final static int EXPIRED = 4;
+	final static int FAILED = 5;
+
+	final Point start, end;
+	int priority;
+	long deadline; //in System.nanoTime() terms, only used if hasDeadline
+	boolean hasDeadline;
+	long order; //breaks ties between searches of equal priority and deadline, first come first served
+	int holders = 0; //how many requests are still waiting for this search
+	//the fields below are guarded by this search's lock, which the requests sharing it also wait on
+	int state = QUEUED;
+	Path path;
+	Throwable failure;
+	double timeTaken = 0;//in ms
+	long finishedAt = 0; //in System.nanoTime() terms
+
+	PathSearch(Point start, Point end, int priority, long deadline, boolean hasDeadline, long order) {
+		this.start = start;
+		this.end = end;
+		this.priority = priority;
+		this.deadline = deadline;
+		this.hasDeadline = hasDeadline;
+		this.order = order;
+	}
+
+	//System.nanoTime() values can wrap around, so only their differences are compared
+	boolean isPastDeadline(long now) {
+		return hasDeadline && now - deadline > 0;
+	}
+
+	synchronized boolean isFinished() {
+		return state >= DONE;
+	}
+
+	synchronized boolean markRunning() {
+		if (state != QUEUED)
+			return false;
+		state = RUNNING;
+		return true;
+	}
+
+	synchronized void addTimeTaken(long nanos) {
+		timeTaken += nanos/1000000.0;
+	}
+
+	synchronized void complete(Path found) {
+		if (state < DONE)
+			path = found;
+		finish(DONE);
+	}
+
+	synchronized void expire() {
+		finish(EXPIRED);
+	}
+
+	synchronized void fail(Throwable cause) {
+		if (state < DONE)
+			failure = cause;
+		finish(FAILED);
+	}
+
+	synchronized void cancel() {
+		finish(CANCELLED);
+	}
+
+	private void finish(int finalState) {
+		if (state >= DONE)
+			return;
+		state = finalState;
+		finishedAt = System.nanoTime();
+		notifyAll();
+	}
+}
@@ -0,0 +1,87 @@
+package tools;
+import java.awt.Point;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/** A read-only view of a path found by AStarPathFinder, in order from the starting point towards the destination.
+ *  Only the block IDs along the path are stored, and each Point is made when it is asked for, so an agent can start
+ *  walking the path straight away. A view may be partial: the best route found so far towards a destination which the
+ *  search has not reached yet. */
+public class PathView implements Iterable<Point> {
+
+	private Grid grid;
+	private int[] steps;
+	private boolean complete;
+
+	protected PathView(Grid grid, int[] steps, boolean complete) {
+		this.grid = grid;
+		this.steps = steps;
+		this.complete = complete;
+	}
+
+	/**
+	 *
+	 * @return The number of points in the path, including the starting point.
+	 */
+	public int size() {
+		return steps.length;
+	}
+
+	/**
+	 *
+	 * @param index How many steps from the start the point is.
+	 * @return The point that many steps along the path.
+	 */
+	public Point get(int index) {
+		return grid.idToPoint(steps[index]);
+	}
+
+	/**
+	 *
+	 * @return The starting point of the path.
+	 */
+	public Point getStart() {
+		return get(0);
+	}
+
+	/**
+	 *
+	 * @return The last point in the path, which is the destination if the path is complete.
+	 */
+	public Point getEnd() {
+		return get(steps.length - 1);
+	}
+
+	/**
+	 *
+	 * @return True if the path reaches the destination, false if it only gets as close as the search has so far.
+	 */
+	public boolean isComplete() {
+		return complete;
+	}
+
+	/** Iterates over the points of the path, from the starting point onwards. */
+	@Override
+	public Iterator<Point> iterator() {
+		return new Iterator<Point>() {
+			private int at = 0;
+
+			@Override
+			public boolean hasNext() {
+				return at < steps.length;
+			}
+
+			@Override
+			public Point next() {
+				if (at == steps.length)
+					throw new NoSuchElementException();
+				return get(at++);
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
@@ -0,0 +1,64 @@
+package tools;
+import java.awt.Point;
+
+/** Records which agent occupies which spot of a grid at which time step, so that agents can plan around each other.
+ *  The table is a flat primitive hash keyed by (time, block), so reserving and checking never allocate. */
+public class ReservationTable {
+
+	public final static int FREE = -1;
+	private Grid grid;
+	private LongIntMap reserved = new LongIntMap(1024);
+
+	/** Creates an empty reservation table.
+	 * 
+	 * @param grid The grid whose spots are being reserved.
+	 */
+	public ReservationTable(Grid grid) {
+		this.grid = grid;
+	}
+
+	/** Reserves a spot at a given time step for an agent, replacing any earlier reservation of it.
+	 * 
+	 * @param at The spot being reserved, as a 2D coordinate on the grid.
+	 * @param time The time step of the reservation.
+	 * @param agent The agent holding the reservation, which must not be negative.
+	 */
+	public void reserve(Point at, int time, int agent) {
+		reserveID(grid.pointToID(at), time, agent);
+	}
+
+	/**
+	 * 
+	 * @param at The spot being checked, as a 2D coordinate on the grid.
+	 * @param time The time step being checked.
+	 * @return The agent holding the spot at that time, or FREE if nobody does.
+	 */
+	public int getReserver(Point at, int time) {
+		return reserverID(grid.pointToID(at), time);
+	}
+
+	/** Removes every reservation. This does not depend on how many reservations were made. */
+	public void clear() {
+		reserved.clear();
+	}
+
+	/**
+	 * 
+	 * @return The number of (spot, time) pairs currently reserved.
+	 */
+	public int size() {
+		return reserved.size();
+	}
+
+	protected void reserveID(int idAt, int time, int agent) {
+		reserved.put(key(idAt, time), agent);
+	}
+
+	protected int reserverID(int idAt, int time) {
+		return reserved.get(key(idAt, time), FREE);
+	}
+
+	private static long key(int idAt, int time) {
+		return ((long) time << 32) | (idAt & 0xFFFFFFFFL);
+	}
+}
@@ -0,0 +1,58 @@
+package tools;
+import java.awt.Point;
+
+/** The distances to only some of the spots on a grid, as found by SwarmPathFinder's bounded searches.
+ *  Only the spots which were reached are stored, so it takes up space in proportion to the area searched, not the grid. */
+public class SparseField {
+
+	private Grid grid;
+	private int[] ids;
+	private int[] dists;
+	private LongIntMap index; //made the first time a distance is looked up by point
+
+	protected SparseField(Grid grid, int[] ids, int[] dists) {
+		this.grid = grid;
+		this.ids = ids;
+		this.dists = dists;
+	}
+
+	/**
+	 *
+	 * @return The number of spots reached.
+	 */
+	public int size() {
+		return ids.length;
+	}
+
+	/**
+	 *
+	 * @param i Which of the reached spots, from 0 to size()-1. Spots are ordered nearest first.
+	 * @return The spot.
+	 */
+	public Point getPoint(int i) {
+		return grid.idToPoint(ids[i]);
+	}
+
+	/**
+	 *
+	 * @param i Which of the reached spots, from 0 to size()-1. Spots are ordered nearest first.
+	 * @return The distance to the spot.
+	 */
+	public int getDistance(int i) {
+		return dists[i];
+	}
+
+	/**
+	 *
+	 * @param at A spot on the grid.
+	 * @return The distance to the spot, or -1 if it was not reached.
+	 */
+	public int getDistanceTo(Point at) {
+		if (index == null) {
+			index = new LongIntMap(ids.length);
+			for (int i = 0; i < ids.length; ++i)
+				index.put(ids[i], dists[i]);
+		}
+		return index.get(grid.pointToID(at), -1);
+	}
+}
@@ -1,5 +1,6 @@
 package tools;
 import java.awt.Point;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.PriorityQueue;
 import java.util.TreeSet;
@@ -16,6 +17,16 @@ public class SwarmPathFinder {
 	private int startID;
 	private int check;
 
+	//reused by the bounded searches, so that they only cost as much as the area they explore
+	private int[] boundedDist;
+	private int[] seenIn; //the search in which each block's boundedDist was last set
+	private int[] settledIn; //the search in which each block was last settled
+	private int[] targetIn; //the search in which each block was last a target
+	private int search = 0;
+	private int boundedStart, boundedMaxCost, boundedRadius;
+	private int xBlocks;
+	private IntMinHeap boundedOpen = new IntMinHeap(100);
+
 	
 	/**
 	 * 
@@ -23,17 +34,14 @@ public class SwarmPathFinder {
 	 */
 	public SwarmPathFinder(Grid grid){
 		this.grid = grid;
+		xBlocks = grid.getXBlocks();
 	}
 	
 	
 	public int[][] findDistsFrom(Point start){
 		distance = new int[grid.getTotalBlocks()];
 		visited=new boolean[grid.getTotalBlocks()];
-		for(int i=0;i<grid.getXBlocks();++i){
-			for(int j=0;j<grid.getYBlocks();++j){
-				distance[grid.pointToID(new Point(i,j))]=-1;
-			}
-		}
+		Arrays.fill(distance, -1);
 		
 		startID = grid.pointToID(start);
 		
@@ -42,10 +50,10 @@ public class SwarmPathFinder {
 		scoreGrid();
 		
 		//after finding the distance to every point, we have to change the info back into usable form
-		int[][] fixedDist = new int[grid.getXBlocks()][grid.getYBlocks()];
-		for(int i=0;i<grid.getXBlocks();++i){
+		int[][] fixedDist = new int[xBlocks][grid.getYBlocks()];
+		for(int i=0;i<xBlocks;++i){
 			for(int j=0;j<grid.getYBlocks();++j){
-				fixedDist[i][j] = distance[grid.pointToID(new Point(i,j))];
+				fixedDist[i][j] = distance[i + j*xBlocks];
 				//System.out.printf("%5d",fixedDist[i][j]);
 			}
 			//System.out.println();
@@ -56,6 +64,112 @@ public class SwarmPathFinder {
 		return fixedDist;
 	}
 	
+	/** Finds the distance from start to only the spots which are at most maxCost away.
+	 * 
+	 * @param start The point distances are measured from.
+	 * @param maxCost The largest distance to search up to.
+	 * @return The spots reached and their distances, nearest first.
+	 */
+	public SparseField findDistsWithin(Point start, int maxCost){
+		return findBounded(start, maxCost, Integer.MAX_VALUE, null);
+	}
+	
+	/** Finds the distance from start to only the spots within a circle around it. Paths may not leave the circle either.
+	 * 
+	 * @param start The point distances are measured from, and the centre of the circle.
+	 * @param radius The radius of the circle, in blocks.
+	 * @return The spots reached and their distances, nearest first.
+	 */
+	public SparseField findDistsWithinRadius(Point start, int radius){
+		return findBounded(start, Integer.MAX_VALUE, radius, null);
+	}
+	
+	/** Finds the distance from start to every spot nearer than the furthest of the targets, stopping as soon as all of them are reached.
+	 * 
+	 * @param start The point distances are measured from.
+	 * @param targets The points which have to be reached.
+	 * @return The spots reached and their distances, nearest first. Targets which cannot be reached are left out.
+	 */
+	public SparseField findDistsUntil(Point start, Point[] targets){
+		return findBounded(start, Integer.MAX_VALUE, Integer.MAX_VALUE, targets);
+	}
+	
+	private SparseField findBounded(Point start, int maxCost, int radius, Point[] targets){
+		if(boundedDist == null){
+			boundedDist = new int[grid.getTotalBlocks()];
+			seenIn = new int[grid.getTotalBlocks()];
+			settledIn = new int[grid.getTotalBlocks()];
+			targetIn = new int[grid.getTotalBlocks()];
+		}
+		if(++search == Integer.MAX_VALUE){ //wrap around before old searches can be mistaken for this one
+			Arrays.fill(seenIn, 0);
+			Arrays.fill(settledIn, 0);
+			Arrays.fill(targetIn, 0);
+			search = 1;
+		}
+		
+		int targetsLeft = 0;
+		if(targets != null){
+			for(Point target : targets){
+				int id = grid.pointToID(target);
+				if(targetIn[id] != search){
+					targetIn[id] = search;
+					++targetsLeft;
+				}
+			}
+		}
+		
+		int first = grid.pointToID(start);
+		boundedStart = first;
+		boundedMaxCost = maxCost;
+		boundedRadius = radius;
+		IntList reached = new IntList(), reachedDist = new IntList();
+		boundedOpen.clear();
+		boundedDist[first] = 0;
+		seenIn[first] = search;
+		boundedOpen.add(first, 0);
+		
+		while(!boundedOpen.isEmpty()){
+			int dist = boundedOpen.peekKey();
+			int at = boundedOpen.poll();
+			if(settledIn[at] == search || dist != boundedDist[at])
+				continue; //a stale entry, this block was already reached more cheaply
+			settledIn[at] = search;
+			reached.add(at);
+			reachedDist.add(dist);
+			if(targetIn[at] == search)
+				--targetsLeft;
+			if(targets != null && targetsLeft == 0)
+				break; //every target has been reached, or there were none to begin with
+			
+			reachBounded(at, grid.IDAbove(at), 10);
+			reachBounded(at, grid.IDBelow(at), 10);
+			reachBounded(at, grid.IDLeft(at), 10);
+			reachBounded(at, grid.IDRight(at), 10);
+			reachBounded(at, grid.IDAbove(grid.IDRight(at)), 14);
+			reachBounded(at, grid.IDAbove(grid.IDLeft(at)), 14);
+			reachBounded(at, grid.IDBelow(grid.IDRight(at)), 14);
+			reachBounded(at, grid.IDBelow(grid.IDLeft(at)), 14);
+		}
+		return new SparseField(grid, reached.toArray(), reachedDist.toArray());
+	}
+	
+	private void reachBounded(int at, int to, int costFix){
+		if(!grid.canWalkID(at, to) || settledIn[to] == search)
+			return;
+		if(boundedRadius != Integer.MAX_VALUE){
+			long dx = to%xBlocks - boundedStart%xBlocks, dy = to/xBlocks - boundedStart/xBlocks;
+			if(dx*dx + dy*dy > (long) boundedRadius*boundedRadius)
+				return;
+		}
+		int newDist = boundedDist[at] + costFix*grid.costID(to);
+		if(newDist <= boundedMaxCost && (seenIn[to] != search || newDist < boundedDist[to])){
+			seenIn[to] = search;
+			boundedDist[to] = newDist;
+			boundedOpen.add(to, newDist);
+		}
+	}
+	
 	private void scoreGrid(){
 		while(!open.isEmpty()){
 			check = open.poll();
@@ -79,7 +193,7 @@ public class SwarmPathFinder {
 		if(grid.canWalkID(check, to) && !visited[to] && (distance[to]==-1 || distance[to]> possibleDist(to))){
 			distance[to] = possibleDist(to);
 			if(open.contains(to))
-				open.remove();
+				open.remove(to);
 			open.add(to);
 		}
 	}
@@ -0,0 +1,90 @@
+package tools;
+import java.util.concurrent.atomic.AtomicReference;
+
+/** A grid which can be edited while other threads are finding paths on it.
+ *  Every Grid is an unchanging snapshot: editing publishes a new version of the grid, and a search keeps reading whichever
+ *  version it started on. Reading the current version is a single atomic read, so readers never lock. New versions share
+ *  every unchanged column of blocks and chunk of costs with the version before them, so an edit copies only what it touches. */
+public class VersionedGrid {
+
+	private AtomicReference<Grid> current;
+
+	/**
+	 *
+	 * @param initial The first version of the grid.
+	 */
+	public VersionedGrid(Grid initial) {
+		current = new AtomicReference<Grid>(initial);
+	}
+
+	/** Gets the newest version of the grid. Pathfinders made for it keep working on it even after later edits are published.
+	 *
+	 * @return The current grid.
+	 */
+	public Grid current() {
+		return current.get();
+	}
+
+	/**
+	 *
+	 * @return The version number of the current grid.
+	 */
+	public long getVersion() {
+		return current.get().getVersion();
+	}
+
+	/** Changes a single block and publishes the result as a new version.
+	 *
+	 * @param x The x-coordinate of the block.
+	 * @param y The y-coordinate of the block.
+	 * @param block The new block ID, which must have a cost in the grid's cost map.
+	 * @return The new version of the grid.
+	 */
+	public Grid setBlock(int x, int y, int block) {
+		return edit().setBlock(x, y, block).commit();
+	}
+
+	/** Starts a batch of changes which are published together as one new version, which is much cheaper than publishing each change.
+	 *
+	 * @return An empty batch of changes.
+	 */
+	public Edit edit() {
+		return new Edit();
+	}
+
+	/** A batch of block changes, published by commit. */
+	public class Edit {
+		private IntList xs = new IntList(), ys = new IntList(), blocks = new IntList();
+
+		private Edit() {
+		}
+
+		/**
+		 *
+		 * @param x The x-coordinate of the block.
+		 * @param y The y-coordinate of the block.
+		 * @param block The new block ID, which must have a cost in the grid's cost map.
+		 * @return This batch, so that changes can be chained.
+		 */
+		public Edit setBlock(int x, int y, int block) {
+			xs.add(x);
+			ys.add(y);
+			blocks.add(block);
+			return this;
+		}
+
+		/** Publishes the changes as a new version of the grid. If another thread publishes first, the changes are applied again on top of its version.
+		 *
+		 * @return The new version of the grid.
+		 */
+		public Grid commit() {
+			int[] x = xs.toArray(), y = ys.toArray(), block = blocks.toArray();
+			while (true) {
+				Grid base = current.get();
+				Grid next = new Grid(base, x, y, block, x.length);
+				if (current.compareAndSet(base, next))
+					return next;
+			}
+		}
+	}
+}
@@ -30,13 +30,13 @@ public class WarshallPathFinder {
 		//initialize the inital distance array so that Warshall's will work with it
 		for(int i=0;i<grid.getTotalBlocks();++i)
 			for(int j=0;j<grid.getTotalBlocks();++j)
-				if (grid.costID[j]==-1)
+				if (grid.costID(j)==-1)
 					dist[i][j]=-2;
 				else if(grid.IDAbove(i)==j || grid.IDBelow(i)==j || grid.IDLeft(i)==j || grid.IDRight(i)==j)
-					dist[i][j]=grid.costID[j]*10;
+					dist[i][j]=grid.costID(j)*10;
 				else if(grid.IDAbove(grid.IDRight(i))==j || grid.IDAbove(grid.IDLeft(i))==j
 						|| grid.IDBelow(grid.IDRight(i))==j || grid.IDBelow(grid.IDLeft(i))==j)
-					dist[i][j]=grid.costID[j]*14;
+					dist[i][j]=grid.costID(j)*14;
 				else if(i==j)
 					dist[i][j] = 0;
 				else
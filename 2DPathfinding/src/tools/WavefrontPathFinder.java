@@ -0,0 +1,132 @@
+package tools;
+import java.awt.Point;
+import java.util.Arrays;
+
+/** Determines the shortest distance to a target location from EVERY other spot on the given grid, like SwarmPathFinder,
+ *  but by sweeping whole rows of the grid at a time instead of expanding blocks one by one from a priority queue.
+ *  Each sweep streams through memory, taking the minimum of every block and its neighbours without branching on the
+ *  distances, which makes this much faster on grids with few different costs, where only a couple of sweeps are needed.
+ *  Sweeps repeat until nothing changes, so the distances are always exactly those found by SwarmPathFinder. */
+public class WavefrontPathFinder {
+
+	private Grid grid;
+	private int xBlocks, yBlocks;
+	private int[] distance;
+	private int[] straightCost, diagonalCost; //read for every block of every sweep
+	private int sweeps;
+	private double timeTaken = 0;//in ms
+
+	/**
+	 *
+	 * @param grid The grid to find distances on.
+	 */
+	public WavefrontPathFinder(Grid grid) {
+		this.grid = grid;
+		xBlocks = grid.getXBlocks();
+		yBlocks = grid.getYBlocks();
+		distance = new int[grid.getTotalBlocks()];
+		straightCost = grid.stepCostsID(10);
+		diagonalCost = grid.stepCostsID(14);
+	}
+
+	/** Finds the distance from start to every spot on the grid.
+	 *
+	 * @param start The point distances are measured from.
+	 * @return The distance to every spot, indexed [x][y], or -1 for spots which cannot be reached.
+	 */
+	public int[][] findDistsFrom(Point start) {
+		long startTime = System.nanoTime();
+		sweepFrom(grid.pointToID(start));
+
+		int[][] fixedDist = new int[xBlocks][yBlocks];
+		for (int y = 0; y < yBlocks; ++y) {
+			int row = y * xBlocks;
+			for (int x = 0; x < xBlocks; ++x)
+				fixedDist[x][y] = distance[row + x] >= Grid.UNREACHED ? -1 : distance[row + x];
+		}
+		timeTaken = (System.nanoTime() - startTime)/1000000.0;
+		return fixedDist;
+	}
+
+	/** Returns how long it took to find the most recent distances.
+	 *
+	 * @return The time taken (in milliseconds).
+	 */
+	public double getLastTimeTaken() {
+		return timeTaken;
+	}
+
+	/**
+	 *
+	 * @return How many times the most recent search swept over the whole grid before the distances stopped changing.
+	 */
+	public int getLastSweepCount() {
+		return sweeps;
+	}
+
+	private void sweepFrom(int startID) {
+		Arrays.fill(distance, Grid.UNREACHED);
+		distance[startID] = 0;
+		sweeps = 0;
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int y = 0; y < yBlocks; ++y) //downwards, each row pulling from the one above it
+				changed |= sweepRow(y, y - 1);
+			for (int y = yBlocks - 1; y >= 0; --y) //upwards, each row pulling from the one below it
+				changed |= sweepRow(y, y + 1);
+			sweeps += 2;
+		}
+	}
+
+	//relaxes every step into row y from row "from" and from within the row itself. Every block is written whether or not it
+	//got shorter and changes are ORed together, so none of the loops branch on the distances
+	private boolean sweepRow(int y, int from) {
+		int row = y * xBlocks;
+		int last = row + xBlocks - 1;
+		int changes = 0;
+
+		if (from >= 0 && from < yBlocks) {
+			int other = from * xBlocks - row; //the block in the other row above or below "at" is at + other
+			if (xBlocks == 1)
+				changes |= relax(row, distance[row + other] + straightCost[row]);
+			else {
+				changes |= relax(row, Math.min(distance[row + other] + straightCost[row],
+						distance[row + other + 1] + diagonalCost[row]));
+				//the steps from the other row do not depend on each other, so this loop has no carried dependency
+				for (int at = row + 1; at < last; ++at) {
+					int best = Math.min(distance[at + other] + straightCost[at],
+							Math.min(distance[at + other - 1], distance[at + other + 1]) + diagonalCost[at]);
+					int old = distance[at];
+					int now = Math.min(old, best);
+					distance[at] = now;
+					changes |= old ^ now;
+				}
+				changes |= relax(last, Math.min(distance[last + other] + straightCost[last],
+						distance[last + other - 1] + diagonalCost[last]));
+			}
+		}
+
+		for (int at = row + 1; at <= last; ++at) { //left to right
+			int old = distance[at];
+			int now = Math.min(old, distance[at - 1] + straightCost[at]);
+			distance[at] = now;
+			changes |= old ^ now;
+		}
+		for (int at = last - 1; at >= row; --at) { //right to left
+			int old = distance[at];
+			int now = Math.min(old, distance[at + 1] + straightCost[at]);
+			distance[at] = now;
+			changes |= old ^ now;
+		}
+		return changes != 0;
+	}
+
+	//lowers the distance of a block at either end of a row, returning non-zero if it changed
+	private int relax(int at, int best) {
+		int old = distance[at];
+		int now = Math.min(old, best);
+		distance[at] = now;
+		return old ^ now;
+	}
+}
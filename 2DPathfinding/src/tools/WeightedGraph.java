@@ -0,0 +1,27 @@
+package tools;
+
+/** A directed graph with whole number edge weights, which the graph pathfinders can run on. Nodes are numbered from 0 to getNodeCount()-1.
+ *  Grid is one, where each node is a block ID, and CSRGraph holds any other graph such as a navmesh or road network. */
+public interface WeightedGraph {
+
+	/**
+	 * 
+	 * @return The number of nodes in the graph.
+	 */
+	public int getNodeCount();
+
+	/**
+	 * 
+	 * @return The most edges any node has leaving it, which is how large the arrays passed to getEdges must be.
+	 */
+	public int getMaxDegree();
+
+	/** Writes out the edges leaving a node.
+	 * 
+	 * @param node The node the edges leave.
+	 * @param targets Filled with the node each edge leads to.
+	 * @param weights Filled with the weight of each edge, which must not be negative.
+	 * @return The number of edges written.
+	 */
+	public int getEdges(int node, int[] targets, int[] weights);
+}